@@ -0,0 +1,4 @@
+package com.aiprocess.benchmark.jmh_generated;
+public class ChunkingBenchmark_jmhType extends ChunkingBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.aiprocess.benchmark.jmh_generated;
+public class EmbeddingBenchmark_jmhType extends EmbeddingBenchmark_jmhType_B3 {
+}
+
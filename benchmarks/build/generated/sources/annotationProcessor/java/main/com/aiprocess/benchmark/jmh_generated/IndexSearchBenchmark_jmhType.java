@@ -0,0 +1,4 @@
+package com.aiprocess.benchmark.jmh_generated;
+public class IndexSearchBenchmark_jmhType extends IndexSearchBenchmark_jmhType_B3 {
+}
+
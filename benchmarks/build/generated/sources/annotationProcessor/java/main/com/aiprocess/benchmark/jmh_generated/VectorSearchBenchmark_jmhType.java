@@ -0,0 +1,4 @@
+package com.aiprocess.benchmark.jmh_generated;
+public class VectorSearchBenchmark_jmhType extends VectorSearchBenchmark_jmhType_B3 {
+}
+
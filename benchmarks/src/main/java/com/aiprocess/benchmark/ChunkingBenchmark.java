@@ -0,0 +1,70 @@
+package com.aiprocess.benchmark;
+
+import com.aiprocess.step25.DocumentChunker;
+import com.aiprocess.step25.TextSpan;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * DocumentChunker 방식별 처리량과 지연 (-prof gc로 문서당 할당량 비교)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class ChunkingBenchmark {
+
+    @Param({"65536", "1048576"})
+    public int documentChars;
+
+    @Param({"500"})
+    public int chunkSize;
+
+    private DocumentChunker chunker;
+    private String document;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        chunker = new DocumentChunker(chunkSize, chunkSize / 5);
+        document = SyntheticCorpus.document(documentChars, 42);
+    }
+
+    @Benchmark
+    public List<String> chunkBySentence() {
+        return chunker.chunkBySentence(document);
+    }
+
+    @Benchmark
+    public List<String> chunkByParagraph() {
+        return chunker.chunkByParagraph(document);
+    }
+
+    @Benchmark
+    public List<String> chunkBySize() {
+        return chunker.chunkBySize(document);
+    }
+
+    @Benchmark
+    public List<TextSpan> spansBySentence() {
+        return chunker.spansBySentence(document);
+    }
+
+    @Benchmark
+    public List<TextSpan> spansByParagraph() {
+        return chunker.spansByParagraph(document);
+    }
+
+    @Benchmark
+    public List<TextSpan> spansByContent() {
+        return chunker.spansByContent(document);
+    }
+
+    @Benchmark
+    public long streamByParagraph() {
+        return chunker.streamByParagraph(new StringReader(document)).count();
+    }
+}
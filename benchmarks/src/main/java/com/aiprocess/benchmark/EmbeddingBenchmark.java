@@ -0,0 +1,49 @@
+package com.aiprocess.benchmark;
+
+import com.aiprocess.step25.SimpleEmbedding;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * SimpleEmbedding.embed / embedBatch 처리량과 지연
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class EmbeddingBenchmark {
+
+    private static final int TEXTS = 1024;  // 2의 거듭제곱 (순환 인덱스)
+    private static final int BATCH = 64;
+
+    @Param({"64", "256", "1024"})
+    public int dimension;
+
+    private SimpleEmbedding embedding;
+    private List<String> texts;
+    private float[] batchOut;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        embedding = new SimpleEmbedding(dimension);
+        texts = SyntheticCorpus.texts(TEXTS, 42);
+        batchOut = new float[BATCH * dimension];
+    }
+
+    @Benchmark
+    public float[] embed() {
+        return embedding.embed(texts.get(next++ & (TEXTS - 1)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public float[] embedBatch() {
+        int start = (next++ & (TEXTS / BATCH - 1)) * BATCH;
+        embedding.embedBatch(texts.subList(start, start + BATCH), batchOut);
+        return batchOut;
+    }
+}
@@ -0,0 +1,55 @@
+package com.aiprocess.benchmark;
+
+import com.aiprocess.step25.SimpleVectorStore;
+import com.aiprocess.step26.HNSWIndex;
+import com.aiprocess.step26.IVFIndex;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * 근사 색인(HNSW, IVF) 검색 지연 (색인 구축은 setup에서 한 번)
+ *
+ * 1M 구축은 수 분이 걸리므로 기본 크기는 10k/100k입니다 (-p size=1000000 으로 지정 가능).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+public class IndexSearchBenchmark {
+
+    private static final int QUERIES = 256;
+    private static final int TOP_K = 10;
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    @Param({"64", "256"})
+    public int dimension;
+
+    private SimpleVectorStore store;
+    private HNSWIndex hnsw;
+    private IVFIndex ivf;
+    private float[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        store = SyntheticCorpus.store(size, dimension, SimpleVectorStore.StorageMode.FLAT, 42);
+        hnsw = new HNSWIndex(store, 16, 100, 64);
+        ivf = new IVFIndex(store, (int) Math.sqrt(size), 8);
+        queries = SyntheticCorpus.queries(QUERIES, dimension, 43);
+    }
+
+    @Benchmark
+    public List<SimpleVectorStore.SearchResult> hnsw() {
+        return hnsw.search(queries[next++ & (QUERIES - 1)], TOP_K);
+    }
+
+    @Benchmark
+    public List<SimpleVectorStore.SearchResult> ivf() {
+        return ivf.search(queries[next++ & (QUERIES - 1)], TOP_K);
+    }
+}
@@ -0,0 +1,133 @@
+package com.aiprocess.benchmark;
+
+import com.aiprocess.step25.*;
+import java.util.*;
+
+/**
+ * 재현 가능한 합성 데이터 (같은 seed면 항상 같은 결과)
+ *
+ * - 텍스트: 음절 조합으로 만든 가상 단어를 치우친 빈도(자주 쓰는 단어가 많음)로 뽑아 문장/문단 구성
+ * - 벡터: 정규분포 성분을 단위 길이로 정규화 (코사인 = 내적)
+ */
+public final class SyntheticCorpus {
+
+    private static final String[] SYLLABLES = {
+        "ka", "ne", "ri", "to", "mu", "sa", "lo", "vi", "de", "po",
+        "an", "el", "in", "or", "us", "ba", "ce", "di", "fo", "gu"
+    };
+    private static final int VOCABULARY_SIZE = 5000;
+    private static final String[] VOCABULARY = vocabulary();
+
+    private SyntheticCorpus() {
+    }
+
+    private static String[] vocabulary() {
+        Random random = new Random(7);
+        Set<String> words = new LinkedHashSet<>();
+        while (words.size() < VOCABULARY_SIZE) {
+            StringBuilder word = new StringBuilder();
+            for (int s = 1 + random.nextInt(4); s > 0; s--) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words.add(word.toString());
+        }
+        return words.toArray(new String[0]);
+    }
+
+    /**
+     * 앞쪽 단어일수록 자주 나오는 단어 선택 (u³ 분포, 대략 Zipf 모양)
+     */
+    private static String word(Random random) {
+        double u = random.nextDouble();
+        return VOCABULARY[(int) (VOCABULARY_SIZE * u * u * u)];
+    }
+
+    /**
+     * 문장 하나 (단어 5~24개, 마침표/물음표/느낌표로 끝남)
+     */
+    private static void appendSentence(StringBuilder out, Random random) {
+        int words = 5 + random.nextInt(20);
+        for (int w = 0; w < words; w++) {
+            if (w > 0) out.append(' ');
+            out.append(word(random));
+        }
+        int end = random.nextInt(10);
+        out.append(end == 0 ? '?' : end == 1 ? '!' : '.');
+    }
+
+    /**
+     * 짧은 텍스트 count개 (문장 1~3개, 임베딩/질의용)
+     */
+    public static List<String> texts(int count, long seed) {
+        Random random = new Random(seed);
+        List<String> texts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int s = 1 + random.nextInt(3); s > 0; s--) {
+                if (text.length() > 0) text.append(' ');
+                appendSentence(text, random);
+            }
+            texts.add(text.toString());
+        }
+        return texts;
+    }
+
+    /**
+     * 약 chars글자 문서 (문단은 문장 2~8개, 문단 사이는 빈 줄)
+     */
+    public static String document(int chars, long seed) {
+        Random random = new Random(seed);
+        StringBuilder document = new StringBuilder(chars + 256);
+        while (document.length() < chars) {
+            for (int s = 2 + random.nextInt(7); s > 0; s--) {
+                appendSentence(document, random);
+                document.append(' ');
+            }
+            document.setLength(document.length() - 1);
+            document.append("\n\n");
+        }
+        return document.toString();
+    }
+
+    /**
+     * 단위 벡터 하나
+     */
+    public static float[] unitVector(int dimension, Random random) {
+        float[] vector = new float[dimension];
+        double norm = 0;
+        for (int d = 0; d < dimension; d++) {
+            vector[d] = (float) random.nextGaussian();
+            norm += vector[d] * vector[d];
+        }
+        float inv = (float) (1 / Math.sqrt(norm));
+        for (int d = 0; d < dimension; d++) {
+            vector[d] *= inv;
+        }
+        return vector;
+    }
+
+    /**
+     * 질의 벡터 count개
+     */
+    public static float[][] queries(int count, int dimension, long seed) {
+        Random random = new Random(seed);
+        float[][] queries = new float[count][];
+        for (int i = 0; i < count; i++) {
+            queries[i] = unitVector(dimension, random);
+        }
+        return queries;
+    }
+
+    /**
+     * 단위 벡터 count개로 채운 저장소 (메타데이터 bucket = 순번 % 100, 필터 검색용)
+     */
+    public static SimpleVectorStore store(int count, int dimension, SimpleVectorStore.StorageMode mode, long seed) {
+        SimpleVectorStore store = new SimpleVectorStore(new SimpleEmbedding(dimension), mode);
+        Random random = new Random(seed);
+        for (int i = 0; i < count; i++) {
+            store.addDocument("doc" + i, "", unitVector(dimension, random),
+                Map.of("bucket", String.valueOf(i % 100)));
+        }
+        return store;
+    }
+}
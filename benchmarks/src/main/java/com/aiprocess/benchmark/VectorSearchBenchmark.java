@@ -0,0 +1,61 @@
+package com.aiprocess.benchmark;
+
+import com.aiprocess.step25.MetadataFilter;
+import com.aiprocess.step25.SimpleVectorStore;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * SimpleVectorStore 전수 검색 (top-10)
+ *
+ * 1M × 1024 조합은 벡터만 4GB이므로 힙이 부족하면 -p storage=OFF_HEAP 또는 -p size=... 로 좁혀 실행합니다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+public class VectorSearchBenchmark {
+
+    private static final int QUERIES = 256;  // 2의 거듭제곱 (순환 인덱스)
+    private static final int TOP_K = 10;
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"64", "256", "1024"})
+    public int dimension;
+
+    @Param({"FLAT"})
+    public SimpleVectorStore.StorageMode storage;
+
+    private SimpleVectorStore store;
+    private float[][] queries;
+    private MetadataFilter filter;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        store = SyntheticCorpus.store(size, dimension, storage, 42);
+        queries = SyntheticCorpus.queries(QUERIES, dimension, 43);
+        filter = MetadataFilter.eq("bucket", "7");  // 1% 부분집합
+        store.metadataIndex();  // 색인 생성 비용은 측정에서 제외
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public List<SimpleVectorStore.SearchResult> search() {
+        return store.search(queries[next++ & (QUERIES - 1)], TOP_K);
+    }
+
+    @Benchmark
+    public List<SimpleVectorStore.SearchResult> searchFiltered() {
+        return store.search(queries[next++ & (QUERIES - 1)], TOP_K, filter);
+    }
+}
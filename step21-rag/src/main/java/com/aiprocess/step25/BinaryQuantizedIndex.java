@@ -0,0 +1,96 @@
+package com.aiprocess.step25;
+
+import java.util.*;
+
+/**
+ * 이진 양자화 인덱스 (해밍 거리 1단계 필터)
+ *
+ * 각 차원의 부호만 1비트로 남겨 long[]에 64차원씩 묶어 저장합니다 (float 대비 1/32).
+ * 점수는 XOR + Long.bitCount로 센 해밍 거리에서 계산한 부호 일치율:
+ *   score = (dimension - 2 × hamming) / dimension   (-1 ~ 1, 코사인의 거친 근사)
+ */
+public class BinaryQuantizedIndex implements PrefilterIndex {
+
+    private static final int SEGMENT_WORDS = 1 << 19;  // 세그먼트당 4MB
+
+    private final int dimension;
+    private final int words;           // 벡터당 long 개수
+    private final int rowsPerSegment;
+    private long[][] segments = new long[0][];
+    private int size;
+
+    public BinaryQuantizedIndex(int dimension) {
+        this.dimension = dimension;
+        this.words = (dimension + 63) / 64;
+        this.rowsPerSegment = Math.max(1, SEGMENT_WORDS / words);
+    }
+
+    @Override
+    public String name() {
+        return "binary";
+    }
+
+    @Override
+    public void add(float[] data, int offset) {
+        int segment = size / rowsPerSegment;
+        int row = size % rowsPerSegment;
+        if (segment == segments.length) {
+            segments = Arrays.copyOf(segments, segment + 1);
+            segments[segment] = new long[Math.min(rowsPerSegment, 16) * words];
+        }
+        if (segments[segment].length < (row + 1) * words) {
+            int rows = Math.min(rowsPerSegment, segments[segment].length / words * 2);
+            segments[segment] = Arrays.copyOf(segments[segment], rows * words);
+        }
+
+        pack(data, offset, segments[segment], row * words);
+        size++;
+    }
+
+    /**
+     * 부호 비트 묶기 (양수 → 1)
+     */
+    private void pack(float[] data, int offset, long[] out, int outOffset) {
+        for (int w = 0; w < words; w++) {
+            long bits = 0;
+            int base = w * 64;
+            int end = Math.min(64, dimension - base);
+            for (int b = 0; b < end; b++) {
+                if (data[offset + base + b] > 0) {
+                    bits |= 1L << b;
+                }
+            }
+            out[outOffset + w] = bits;
+        }
+    }
+
+    @Override
+    public void search(float[] query, TopKSelector candidates) {
+        long[] queryBits = new long[words];
+        pack(query, 0, queryBits, 0);
+        float scale = 2f / dimension;
+
+        int ordinal = 0;
+        for (int s = 0; s < segments.length; s++) {
+            long[] bits = segments[s];
+            int rows = Math.min(rowsPerSegment, size - s * rowsPerSegment);
+            for (int r = 0, base = 0; r < rows; r++, base += words, ordinal++) {
+                int hamming = 0;
+                for (int w = 0; w < words; w++) {
+                    hamming += Long.bitCount(queryBits[w] ^ bits[base + w]);
+                }
+                candidates.offer(ordinal, 1f - hamming * scale);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return (long) size * words * 8;
+    }
+}
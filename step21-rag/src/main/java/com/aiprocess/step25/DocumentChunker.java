@@ -1,14 +1,36 @@
 package com.aiprocess.step25;
 
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * 문서 청킹: 큰 문서를 작은 조각으로 나누기
  *
  * RAG에서 중요한 전처리 단계
+ *
+ * chunkBy*는 문서 전체를 String으로 받아 List를 만들고,
+ * streamBy*는 Reader/InputStream에서 필요한 만큼만 읽으며 청크를 하나씩 내보냅니다.
+ * 스트림 쪽은 문서 크기와 관계없이 청크 몇 개 분량의 버퍼만 사용합니다.
+ * spansBy*는 정규식이나 중간 문자열 없이 한 번 훑어 원문 위의 구간(TextSpan)만 돌려줍니다.
+ * 문장/문단 구간은 구분자를 원문 그대로 두므로 chunkBy*·streamBy*와 청크 내용(과 경계)이 다를 수 있습니다.
+ * 그래서 청크 id가 내용에 묶인 수집 경로(RAGPipeline, IngestionPipeline)는 chunkBy*와 streamBy*를 쓰고,
+ * spansBy*는 원문을 메모리에 둔 채 위치만 필요한 호출자(IncrementalIndexer 등)가 씁니다.
+ * spansByContent는 롤링 해시로 경계를 정해, 문서 일부를 고쳐도 나머지 청크가 그대로 유지됩니다.
  */
 public class DocumentChunker {
 
+    private static final int READ_BUFFER_CHARS = 8192;
+    private static final int MAX_UNIT_CHARS = 1 << 16;  // 문장/문단 하나의 버퍼 상한
+    private static final Pattern SENTENCE_BOUNDARY = Pattern.compile("(?<=[.!?])\\s+");
+    private static final Pattern PARAGRAPH_BOUNDARY = Pattern.compile("\n\n+");
+    private static final int CONTENT_WINDOW = 64;       // Gear 해시가 보는 글자 수 (long 비트 수)
+    private static final int AVERAGE_WORD_CHARS = 6;    // 경계 후보(공백) 사이 평균 글자 수
+    private static final long[] GEAR = gearTable();
+
     private final int chunkSize;      // 청크 크기 (글자 수)
     private final int overlapSize;    // 오버랩 크기
 
@@ -24,7 +46,7 @@ public class DocumentChunker {
         List<String> chunks = new ArrayList<>();
 
         // 문장 분리 (간단한 방식)
-        String[] sentences = document.split("(?<=[.!?])\\s+");
+        String[] sentences = SENTENCE_BOUNDARY.split(document);
 
         StringBuilder currentChunk = new StringBuilder();
 
@@ -66,9 +88,11 @@ public class DocumentChunker {
             }
 
             chunks.add(document.substring(start, end).trim());
-            start = end - overlapSize;
+            if (end == document.length()) break;
 
-            if (start < 0) start = end;
+            // 오버랩만큼 되돌아가되 항상 앞으로 진행
+            int next = end - overlapSize;
+            start = next > start ? next : end;
         }
 
         return chunks;
@@ -80,7 +104,7 @@ public class DocumentChunker {
     public List<String> chunkByParagraph(String document) {
         List<String> chunks = new ArrayList<>();
 
-        String[] paragraphs = document.split("\n\n+");
+        String[] paragraphs = PARAGRAPH_BOUNDARY.split(document);
 
         StringBuilder currentChunk = new StringBuilder();
 
@@ -100,6 +124,278 @@ public class DocumentChunker {
         return chunks;
     }
 
+    /**
+     * 문장 단위 구간 청킹 (한 번 훑기, 복사 없음)
+     *
+     * 경계와 오버랩 규칙은 chunkBySentence와 같고, 길이는 원문의 구간 길이로 셉니다.
+     * 문장 사이 공백은 원문 그대로 남습니다 (chunkBySentence는 공백 하나로 바꿈).
+     * 빈 청크는 만들지 않으므로 공백뿐인 문서는 빈 목록입니다 (chunkBySentence는 [""]).
+     */
+    public List<TextSpan> spansBySentence(CharSequence text) {
+        List<TextSpan> spans = new ArrayList<>();
+        int length = text.length();
+        int chunkStart = 0;
+        int chunkEnd = -1;  // 현재 청크의 마지막 문장 끝 (-1이면 빈 청크)
+
+        int i = 0;
+        while (i < length) {
+            int sentenceEnd = i;
+            while (sentenceEnd < length && !(isSpace(text.charAt(sentenceEnd))
+                    && sentenceEnd > i && isTerminator(text.charAt(sentenceEnd - 1)))) {
+                sentenceEnd++;
+            }
+            int next = sentenceEnd;
+            while (next < length && isSpace(text.charAt(next))) next++;
+
+            if (chunkEnd >= 0 && sentenceEnd - chunkStart > chunkSize) {
+                addTrimmed(spans, text, chunkStart, chunkEnd);
+                int overlap = overlapStart(text, chunkStart, chunkEnd);
+                chunkStart = overlap >= 0 ? overlap : i;
+            }
+            chunkEnd = sentenceEnd;
+            i = next;
+        }
+
+        if (chunkEnd >= 0) {
+            addTrimmed(spans, text, chunkStart, chunkEnd);
+        }
+        return spans;
+    }
+
+    /**
+     * 고정 크기 구간 청킹 (chunkBySize와 같은 결과)
+     *
+     * 공백만 남는 구간도 chunkBySize처럼 빈 청크(길이 0 구간)로 넣습니다.
+     */
+    public List<TextSpan> spansBySize(CharSequence text) {
+        List<TextSpan> spans = new ArrayList<>();
+        int length = text.length();
+
+        int start = 0;
+        while (start < length) {
+            int end = Math.min(start + chunkSize, length);
+
+            // 단어 경계에서 자르기
+            if (end < length) {
+                for (int j = end; j > start; j--) {
+                    if (text.charAt(j) == ' ') {
+                        end = j;
+                        break;
+                    }
+                }
+            }
+
+            spans.add(trim(text, start, end));
+            if (end == length) break;
+
+            int next = end - overlapSize;
+            start = next > start ? next : end;
+        }
+        return spans;
+    }
+
+    /**
+     * 문단 단위 구간 청킹 (한 번 훑기, 복사 없음)
+     *
+     * 빈 줄(연속 개행 2개 이상)로 문단을 나누고, chunkSize를 넘기 전까지 이어지는 문단을 한 구간으로 묶습니다.
+     * 문단 사이 개행은 원문 그대로 남고(chunkByParagraph는 빈 줄 하나로 바꿈), 길이도 원문 구간 길이로 셉니다.
+     * 빈 청크는 만들지 않으므로 공백뿐인 문서는 빈 목록입니다 (chunkByParagraph는 [""]일 수 있음).
+     */
+    public List<TextSpan> spansByParagraph(CharSequence text) {
+        List<TextSpan> spans = new ArrayList<>();
+        int length = text.length();
+        int chunkStart = -1;
+        int chunkEnd = -1;
+
+        int i = 0;
+        while (i < length) {
+            int paragraphEnd = i;
+            while (paragraphEnd < length && !(text.charAt(paragraphEnd) == '\n'
+                    && paragraphEnd + 1 < length && text.charAt(paragraphEnd + 1) == '\n')) {
+                paragraphEnd++;
+            }
+            int next = paragraphEnd;
+            while (next < length && text.charAt(next) == '\n') next++;
+
+            if (chunkStart >= 0 && paragraphEnd - chunkStart > chunkSize) {
+                addTrimmed(spans, text, chunkStart, chunkEnd);
+                chunkStart = -1;
+            }
+            if (chunkStart < 0) {
+                chunkStart = i;
+            }
+            chunkEnd = paragraphEnd;
+            i = next;
+        }
+
+        if (chunkStart >= 0) {
+            addTrimmed(spans, text, chunkStart, chunkEnd);
+        }
+        return spans;
+    }
+
+    /**
+     * 내용 기준 구간 청킹 (Gear 롤링 해시, 평균 약 chunkSize글자, 오버랩 없음)
+     *
+     * 경계는 직전 64글자로만 정해지므로, 문서 일부를 고쳐도 고친 곳 주변 청크만 바뀌고
+     * 나머지는 같은 내용으로 다시 잘립니다 (증분 인덱싱에서 청크 재사용).
+     * 경계는 공백에만 두며, 청크 길이는 chunkSize/4 이상 chunkSize*2 이하입니다.
+     */
+    public List<TextSpan> spansByContent(CharSequence text) {
+        List<TextSpan> spans = new ArrayList<>();
+        int length = text.length();
+        int minSize = Math.max(CONTENT_WINDOW, chunkSize / 4);
+        int maxSize = Math.max(minSize * 2, chunkSize * 2);
+        int candidates = Math.max(2, (chunkSize - minSize) / AVERAGE_WORD_CHARS);
+        int bits = 32 - Integer.numberOfLeadingZeros(candidates - 1);  // 경계 확률 ≈ 1 / candidates
+        long mask = -1L << (Long.SIZE - bits);  // 상위 비트가 창 전체(64글자)에 의존
+
+        long hash = 0;
+        int start = 0;
+        int lastSpace = -1;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            hash = (hash << 1) + GEAR[(c ^ (c >>> 8)) & 0xFF];
+            if (!isSpace(c)) {
+                if (i - start >= maxSize) {
+                    // 경계가 없으면 마지막 공백(없으면 현재 위치)에서 강제로 자름
+                    int cut = lastSpace > start ? lastSpace : i;
+                    addTrimmed(spans, text, start, cut);
+                    start = cut;
+                }
+                continue;
+            }
+
+            lastSpace = i;
+            if (i - start >= minSize && (hash & mask) == 0) {
+                addTrimmed(spans, text, start, i);
+                start = i;
+            }
+        }
+
+        addTrimmed(spans, text, start, length);
+        return spans;
+    }
+
+    private static long[] gearTable() {
+        long[] table = new long[256];
+        Random random = new Random(42);
+        for (int i = 0; i < table.length; i++) {
+            table[i] = random.nextLong();
+        }
+        return table;
+    }
+
+    /**
+     * 앞뒤 공백을 뺀 구간 추가 (String.trim과 같은 기준, 비면 생략)
+     */
+    private static void addTrimmed(List<TextSpan> spans, CharSequence text, int start, int end) {
+        TextSpan span = trim(text, start, end);
+        if (span.length() > 0) {
+            spans.add(span);
+        }
+    }
+
+    /**
+     * 앞뒤 공백을 뺀 구간 (String.trim과 같은 기준, 공백뿐이면 길이 0)
+     */
+    private static TextSpan trim(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') start++;
+        while (end > start && text.charAt(end - 1) <= ' ') end--;
+        return new TextSpan(text, start, end);
+    }
+
+    /**
+     * 다음 청크가 시작할 위치: 마지막 overlapSize글자 안의 첫 단어 (getOverlapText와 같은 규칙)
+     *
+     * @return 오버랩이 없으면 -1 (다음 문장부터 새로 시작)
+     */
+    private int overlapStart(CharSequence text, int chunkStart, int chunkEnd) {
+        // chunkBySentence처럼 청크 뒤에 구분 공백 하나가 붙은 것으로 셈
+        if (chunkEnd + 1 - chunkStart <= overlapSize) {
+            return chunkStart;
+        }
+        int start = chunkEnd + 1 - overlapSize;
+        if (start > chunkEnd) {
+            return -1;
+        }
+        if (start == chunkEnd || text.charAt(start) == ' ') {
+            return start;
+        }
+        for (int j = start + 1; j < chunkEnd; j++) {
+            if (text.charAt(j) == ' ') {
+                return j + 1;
+            }
+        }
+        return -1;  // 남은 글자 안에 단어 경계가 없으면 오버랩 없음
+    }
+
+    private static boolean isTerminator(char c) {
+        return c == '.' || c == '!' || c == '?';
+    }
+
+    /**
+     * 정규식 \s와 같은 공백 문자
+     */
+    private static boolean isSpace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    /**
+     * 문장 단위 스트리밍 청킹 (chunkBySentence와 같은 결과, 단 공백뿐인 문서는 빈 스트림)
+     *
+     * reader는 호출자가 닫습니다. 읽기 오류는 UncheckedIOException으로 전달됩니다.
+     */
+    public Stream<String> streamBySentence(Reader reader) {
+        return stream(new SentenceChunkIterator(reader));
+    }
+
+    /**
+     * 문장 단위 스트리밍 청킹 (UTF-8)
+     */
+    public Stream<String> streamBySentence(InputStream in) {
+        return streamBySentence(utf8(in));
+    }
+
+    /**
+     * 고정 크기 스트리밍 청킹 (chunkBySize와 같은 결과)
+     */
+    public Stream<String> streamBySize(Reader reader) {
+        return stream(new SizeChunkIterator(reader));
+    }
+
+    /**
+     * 고정 크기 스트리밍 청킹 (UTF-8)
+     */
+    public Stream<String> streamBySize(InputStream in) {
+        return streamBySize(utf8(in));
+    }
+
+    /**
+     * 문단 단위 스트리밍 청킹 (chunkByParagraph와 같은 결과, 단 공백뿐인 문서는 빈 스트림)
+     *
+     * 빈 줄 없는 로그처럼 문단 하나가 MAX_UNIT_CHARS를 넘으면 그 안의 마지막 공백에서 끊습니다.
+     */
+    public Stream<String> streamByParagraph(Reader reader) {
+        return stream(new ParagraphChunkIterator(reader));
+    }
+
+    /**
+     * 문단 단위 스트리밍 청킹 (UTF-8)
+     */
+    public Stream<String> streamByParagraph(InputStream in) {
+        return streamByParagraph(utf8(in));
+    }
+
+    private static Reader utf8(InputStream in) {
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    private static Stream<String> stream(Iterator<String> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+            Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
     private String getOverlapText(String text) {
         if (text.length() <= overlapSize) {
             return text;
@@ -115,6 +411,272 @@ public class DocumentChunker {
         return text.substring(start);
     }
 
+    /**
+     * 스트리밍 청크 반복자 공통부 (고정 크기 읽기 버퍼 + 다음 청크 한 개 선계산)
+     */
+    private abstract static class ChunkIterator implements Iterator<String> {
+        private final Reader reader;
+        private final char[] buffer = new char[READ_BUFFER_CHARS];
+        private int position;
+        private int limit;
+        private String next;
+        private boolean done;
+
+        ChunkIterator(Reader reader) {
+            this.reader = Objects.requireNonNull(reader, "reader");
+        }
+
+        /**
+         * 다음 청크 계산 (없으면 null)
+         */
+        abstract String computeNext();
+
+        /**
+         * 한 글자 읽기 (끝이면 -1)
+         */
+        int read() {
+            if (position == limit) {
+                try {
+                    int n;
+                    do {
+                        n = reader.read(buffer);
+                    } while (n == 0);
+                    if (n < 0) return -1;
+                    limit = n;
+                    position = 0;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return buffer[position++];
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                next = computeNext();
+                done = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String chunk = next;
+            next = null;
+            return chunk;
+        }
+    }
+
+    /**
+     * 문장/문단처럼 경계 단위를 모아 청크를 만드는 반복자
+     */
+    private abstract class UnitChunkIterator extends ChunkIterator {
+        final StringBuilder unit = new StringBuilder();
+        private final StringBuilder carry = new StringBuilder();  // 다음 단위의 앞부분
+        private StringBuilder current = new StringBuilder();
+        private boolean exhausted;
+
+        UnitChunkIterator(Reader reader) {
+            super(reader);
+        }
+
+        /**
+         * 다음 단위를 unit에 읽음 (더 없으면 false)
+         */
+        abstract boolean readUnit();
+
+        /**
+         * 현재 청크가 넘칠 때 다음 청크에 남길 텍스트
+         */
+        abstract String overlapOf(String chunk);
+
+        /**
+         * 단위 사이 구분자
+         */
+        abstract String separator();
+
+        @Override
+        String computeNext() {
+            while (!exhausted) {
+                unit.setLength(0);
+                unit.append(carry);
+                carry.setLength(0);
+                if (!readUnit()) {
+                    exhausted = true;
+                    break;
+                }
+
+                String chunk = null;
+                if (current.length() + unit.length() > chunkSize && current.length() > 0) {
+                    chunk = current.toString().trim();
+                    current = new StringBuilder(overlapOf(current.toString()));
+                }
+                current.append(unit).append(separator());
+                if (chunk != null) return chunk;
+            }
+
+            if (current.length() == 0) return null;
+            String chunk = current.toString().trim();
+            current.setLength(0);
+            return chunk;
+        }
+
+        /**
+         * 단위가 상한에 닿았으면 마지막 공백에서 끊고 나머지는 다음 단위로 넘김
+         */
+        boolean unitFull() {
+            if (unit.length() < MAX_UNIT_CHARS) return false;
+            for (int i = unit.length() - 1; i > 0; i--) {
+                if (Character.isWhitespace(unit.charAt(i))) {
+                    carry.append(unit, i + 1, unit.length());
+                    unit.setLength(i + 1);
+                    break;
+                }
+            }
+            return true;
+        }
+
+        void pushBack(char c) {
+            carry.append(c);
+        }
+    }
+
+    private final class SentenceChunkIterator extends UnitChunkIterator {
+        SentenceChunkIterator(Reader reader) {
+            super(reader);
+        }
+
+        /**
+         * chunkBySentence의 "(?<=[.!?])\\s+" 분리와 같은 경계
+         */
+        @Override
+        boolean readUnit() {
+            int c;
+            while ((c = read()) >= 0) {
+                if (isSpace(c) && unit.length() > 0 && isTerminator(unit.charAt(unit.length() - 1))) {
+                    while ((c = read()) >= 0 && isSpace(c)) {
+                        // 연속 공백은 경계 하나
+                    }
+                    if (c >= 0) pushBack((char) c);
+                    return true;
+                }
+                unit.append((char) c);
+                if (unitFull()) return true;
+            }
+            return unit.length() > 0;
+        }
+
+        @Override
+        String overlapOf(String chunk) {
+            return getOverlapText(chunk);
+        }
+
+        @Override
+        String separator() {
+            return " ";
+        }
+
+    }
+
+    private final class ParagraphChunkIterator extends UnitChunkIterator {
+        ParagraphChunkIterator(Reader reader) {
+            super(reader);
+        }
+
+        /**
+         * chunkByParagraph의 "\n\n+" 분리와 같은 경계 (끝의 빈 문단은 버림)
+         */
+        @Override
+        boolean readUnit() {
+            int newlines = 0;
+            int c;
+            while ((c = read()) >= 0) {
+                if (c == '\n') {
+                    newlines++;
+                    continue;
+                }
+                if (newlines >= 2) {
+                    pushBack((char) c);
+                    return true;
+                }
+                if (newlines == 1) {
+                    unit.append('\n');
+                    newlines = 0;
+                }
+                unit.append((char) c);
+                if (unitFull()) return true;
+            }
+            if (newlines == 1) unit.append('\n');
+            return unit.length() > 0;
+        }
+
+        @Override
+        String overlapOf(String chunk) {
+            return "";
+        }
+
+        @Override
+        String separator() {
+            return "\n\n";
+        }
+    }
+
+    /**
+     * 고정 크기 청크 반복자 (chunkSize + 1글자 창만 유지)
+     */
+    private final class SizeChunkIterator extends ChunkIterator {
+        private final StringBuilder window = new StringBuilder();
+        private boolean finished;
+
+        SizeChunkIterator(Reader reader) {
+            super(reader);
+        }
+
+        @Override
+        String computeNext() {
+            if (finished) return null;
+
+            int c;
+            while (window.length() <= chunkSize && (c = read()) >= 0) {
+                window.append((char) c);
+            }
+            if (window.length() == 0) return null;
+
+            // 창이 chunkSize 이하면 문서 끝까지 읽은 것
+            boolean last = window.length() <= chunkSize;
+            int end = Math.min(chunkSize, window.length());
+            if (!last) {
+                int lastSpace = window.lastIndexOf(" ", end);
+                if (lastSpace > 0) {
+                    end = lastSpace;
+                }
+            }
+
+            String chunk = window.substring(0, end).trim();
+            if (last) {
+                finished = true;
+                window.setLength(0);
+                return chunk;
+            }
+
+            int next = end - overlapSize;
+            window.delete(0, next > 0 ? next : end);
+            return chunk;
+        }
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getOverlapSize() {
+        return overlapSize;
+    }
+
     /**
      * 청킹 결과 시각화
      */
@@ -0,0 +1,387 @@
+package com.aiprocess.step25;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 스레드 안전한 크기 제한 임베딩 캐시
+ *
+ * 키 해시로 나눈 세그먼트마다 락을 따로 잡아 여러 요청 스레드가 동시에 써도 안전합니다.
+ * 용량은 항목 수 또는 바이트 수로 제한하고, 가득 차면 정책에 따라 내보냅니다.
+ *
+ * - LRU: 가장 오래 사용하지 않은 항목 제거
+ * - W_TINY_LFU: 작은 LRU 윈도우(1%)를 거친 새 항목이 메인 영역의 희생자보다
+ *   자주 쓰였을 때만 들어감 (한 번 쓰고 마는 쿼리가 인기 항목을 밀어내지 않음)
+ */
+public class EmbeddingCache {
+
+    /**
+     * 제거 정책
+     */
+    public enum EvictionPolicy {
+        LRU,
+        W_TINY_LFU
+    }
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final long ENTRY_OVERHEAD_BYTES = 96;  // 노드, 배열 헤더, 문자열 헤더 등 대략치
+
+    private final EvictionPolicy policy;
+    private final boolean weighByBytes;
+    private final long maxWeight;
+    private final long ttlNanos;
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private EmbeddingCache(long maxWeight, boolean weighByBytes, EvictionPolicy policy, long ttlNanos) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("캐시 용량은 양수여야 합니다: " + maxWeight);
+        }
+        this.policy = Objects.requireNonNull(policy);
+        this.weighByBytes = weighByBytes;
+        this.maxWeight = maxWeight;
+        this.ttlNanos = ttlNanos;
+
+        long minSegmentWeight = weighByBytes ? 64 * 1024 : 64;
+        int count = (int) Math.max(1, Math.min(MAX_SEGMENTS, maxWeight / minSegmentWeight));
+        this.segments = new Segment[Integer.highestOneBit(count)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(maxWeight / segments.length);
+        }
+    }
+
+    /**
+     * 항목 수로 제한하는 캐시
+     */
+    public static EmbeddingCache ofEntries(long maxEntries, EvictionPolicy policy) {
+        return new EmbeddingCache(maxEntries, false, policy, 0);
+    }
+
+    /**
+     * 바이트 수로 제한하는 캐시 (키 문자열 + 벡터 크기 기준)
+     */
+    public static EmbeddingCache ofBytes(long maxBytes, EvictionPolicy policy) {
+        return new EmbeddingCache(maxBytes, true, policy, 0);
+    }
+
+    /**
+     * 쓰기 후 ttl이 지나면 만료되는 같은 설정의 새 캐시
+     */
+    public EmbeddingCache withTtl(long ttl, TimeUnit unit) {
+        return new EmbeddingCache(maxWeight, weighByBytes, policy, unit.toNanos(ttl));
+    }
+
+    /**
+     * 캐시 조회 (없거나 만료되면 null)
+     */
+    public float[] get(String key) {
+        int hash = spread(key.hashCode());
+        float[] value = segmentFor(hash).get(key, hash);
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    /**
+     * 캐시 저장
+     */
+    public void put(String key, float[] vector) {
+        int hash = spread(key.hashCode());
+        segmentFor(hash).put(key, hash, vector, weigh(key, vector));
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * 현재 항목 수
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * 현재 사용량 (항목 수 또는 바이트)
+     */
+    public long weight() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            weight += segment.weight();
+        }
+        return weight;
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size(), weight());
+    }
+
+    private long weigh(String key, float[] vector) {
+        if (!weighByBytes) return 1;
+        return ENTRY_OVERHEAD_BYTES + 2L * key.length() + 4L * vector.length;
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[(hash >>> 16) & (segments.length - 1)];
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x45d9f3b;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 세그먼트: 자체 락 + LRU 순서 맵 (+ W-TinyLFU 윈도우/빈도 스케치)
+     */
+    private final class Segment {
+        private final long maxWeight;
+        private final long windowMaxWeight;
+        private final LinkedHashMap<String, Entry> main = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<String, Entry> window;
+        private final FrequencySketch sketch;
+        private long mainWeight;
+        private long windowWeight;
+
+        Segment(long maxWeight) {
+            this.maxWeight = Math.max(1, maxWeight);
+            if (policy == EvictionPolicy.W_TINY_LFU) {
+                this.windowMaxWeight = Math.max(1, this.maxWeight / 100);
+                this.window = new LinkedHashMap<>(16, 0.75f, true);
+                this.sketch = new FrequencySketch(weighByBytes ? this.maxWeight / 256 : this.maxWeight);
+            } else {
+                this.windowMaxWeight = 0;
+                this.window = null;
+                this.sketch = null;
+            }
+        }
+
+        synchronized float[] get(String key, int hash) {
+            if (sketch != null) sketch.increment(hash);
+
+            Entry entry = main.get(key);
+            if (entry == null && window != null) {
+                entry = window.get(key);
+            }
+            if (entry == null) return null;
+
+            if (entry.isExpired()) {
+                remove(key);
+                evictions.increment();
+                return null;
+            }
+            return entry.vector;
+        }
+
+        synchronized void put(String key, int hash, float[] vector, long weight) {
+            if (weight > maxWeight) return;  // 세그먼트보다 큰 항목은 저장하지 않음
+            remove(key);
+
+            Entry entry = new Entry(key, hash, vector, weight,
+                ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0);
+
+            if (window == null) {
+                main.put(key, entry);
+                mainWeight += weight;
+                while (mainWeight > maxWeight) {
+                    evictEldest(main);
+                }
+                return;
+            }
+
+            // W-TinyLFU: 윈도우에 먼저 넣고, 넘친 항목이 메인 영역 입장을 놓고 경쟁
+            sketch.increment(hash);
+            window.put(key, entry);
+            windowWeight += weight;
+            while (windowWeight > windowMaxWeight) {
+                Entry candidate = removeEldest(window);
+                windowWeight -= candidate.weight;
+                admit(candidate);
+            }
+        }
+
+        /**
+         * 윈도우에서 밀려난 후보의 메인 영역 입장
+         *
+         * 자리가 없으면 희생자(메인의 가장 오래된 항목) 하나와 빈도를 비교해 둘 중 하나만 내보냅니다.
+         * 바이트 단위 캐시에서 후보가 희생자보다 크면, 입장 후 남는 초과분은 오래된 항목부터 내보냅니다.
+         */
+        private void admit(Entry candidate) {
+            long mainMax = maxWeight - windowMaxWeight;
+            if (candidate.weight > mainMax) {
+                evictions.increment();
+                return;
+            }
+            if (mainWeight + candidate.weight > mainMax) {
+                Entry victim = main.values().iterator().next();
+                if (sketch.frequency(candidate.hash) <= sketch.frequency(victim.hash)) {
+                    evictions.increment();  // 후보가 덜 인기 있으면 후보를 버림
+                    return;
+                }
+                evictEldest(main);
+            }
+            main.put(candidate.key, candidate);
+            mainWeight += candidate.weight;
+            while (mainWeight > mainMax) {
+                evictEldest(main);
+            }
+        }
+
+        private void evictEldest(LinkedHashMap<String, Entry> map) {
+            Entry eldest = removeEldest(map);
+            mainWeight -= eldest.weight;
+            evictions.increment();
+        }
+
+        private Entry removeEldest(LinkedHashMap<String, Entry> map) {
+            Iterator<Entry> it = map.values().iterator();
+            Entry eldest = it.next();
+            it.remove();
+            return eldest;
+        }
+
+        private void remove(String key) {
+            Entry old = main.remove(key);
+            if (old != null) {
+                mainWeight -= old.weight;
+            } else if (window != null && (old = window.remove(key)) != null) {
+                windowWeight -= old.weight;
+            }
+        }
+
+        synchronized void clear() {
+            main.clear();
+            mainWeight = 0;
+            if (window != null) {
+                window.clear();
+                windowWeight = 0;
+            }
+        }
+
+        synchronized int size() {
+            return main.size() + (window != null ? window.size() : 0);
+        }
+
+        synchronized long weight() {
+            return mainWeight + windowWeight;
+        }
+    }
+
+    private static final class Entry {
+        final String key;
+        final int hash;
+        final float[] vector;
+        final long weight;
+        final long expiresAt;  // 0이면 만료 없음
+
+        Entry(String key, int hash, float[] vector, long weight, long expiresAt) {
+            this.key = key;
+            this.hash = hash;
+            this.vector = vector;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return expiresAt != 0 && System.nanoTime() - expiresAt > 0;
+        }
+    }
+
+    /**
+     * 빈도 스케치 (Count-Min, 4비트 카운터 대신 byte 사용)
+     *
+     * 표본 수가 용량의 10배가 되면 모든 카운터를 절반으로 줄여 오래된 인기를 잊음
+     */
+    private static final class FrequencySketch {
+        private static final int MAX_COUNT = 15;
+
+        private final byte[] table;
+        private final int mask;
+        private final long sampleSize;
+        private long additions;
+
+        FrequencySketch(long expectedEntries) {
+            int size = Integer.highestOneBit((int) Math.min(1 << 24, Math.max(64, expectedEntries * 4)));
+            this.table = new byte[size];
+            this.mask = size - 1;
+            this.sampleSize = 10L * Math.max(16, expectedEntries);
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                if (table[index] < MAX_COUNT) {
+                    table[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(int hash) {
+            int min = MAX_COUNT;
+            for (int i = 0; i < 4; i++) {
+                min = Math.min(min, table[indexOf(hash, i)]);
+            }
+            return min;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash + row * 0x9e3779b9) * 0x85ebca6b;
+            return (h ^ (h >>> 15)) & mask;
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] >>= 1;
+            }
+            additions /= 2;
+        }
+    }
+
+    /**
+     * 캐시 통계
+     */
+    public static class Stats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final long size;
+        public final long weight;
+
+        public Stats(long hits, long misses, long evictions, long size, long weight) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+            this.weight = weight;
+        }
+
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, size=%d",
+                hits, misses, hitRate() * 100, evictions, size);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.aiprocess.step25;
+
+import java.util.*;
+
+/**
+ * 연속 메모리 벡터 행렬 (row-major)
+ *
+ * 모든 벡터를 몇 개의 큰 float[] 세그먼트에 이어 붙여 저장합니다.
+ * 문서마다 float[]를 따로 두는 방식보다 캐시 미스와 GC 스캔 대상이 줄어듭니다.
+ *
+ * 세그먼트 i, 행 r 의 벡터 = segment(i)[r * dimension .. (r + 1) * dimension)
+ */
+public class FlatVectorMatrix implements VectorStorage {
+
+    private static final int DEFAULT_SEGMENT_FLOATS = 1 << 20;  // 세그먼트당 4MB
+    private static final int INITIAL_ROWS = 16;
+
+    private final int dimension;
+    private final int rowsPerSegment;
+    private float[][] segments = new float[0][];
+    private int size;
+
+    public FlatVectorMatrix(int dimension) {
+        this(dimension, Math.max(1, DEFAULT_SEGMENT_FLOATS / dimension));
+    }
+
+    public FlatVectorMatrix(int dimension, int rowsPerSegment) {
+        if (dimension <= 0 || rowsPerSegment <= 0) {
+            throw new IllegalArgumentException("dimension과 rowsPerSegment는 양수여야 합니다");
+        }
+        this.dimension = dimension;
+        this.rowsPerSegment = rowsPerSegment;
+    }
+
+    /**
+     * 벡터 추가 (행 번호 반환)
+     */
+    public int add(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException(
+                "벡터 차원 불일치: " + vector.length + " != " + dimension);
+        }
+        return add(vector, 0);
+    }
+
+    /**
+     * src[offset..offset+dimension) 을 새 행으로 추가 (배치 행렬에서 바로 복사)
+     */
+    @Override
+    public int add(float[] src, int offset) {
+        int segment = size / rowsPerSegment;
+        int row = size % rowsPerSegment;
+        ensureCapacity(segment, row + 1);
+
+        System.arraycopy(src, offset, segments[segment], row * dimension, dimension);
+        return size++;
+    }
+
+    /**
+     * 마지막 세그먼트는 ArrayList처럼 점진적으로 키움 (작은 저장소에서 4MB 낭비 방지)
+     */
+    private void ensureCapacity(int segment, int rows) {
+        if (segment == segments.length) {
+            segments = Arrays.copyOf(segments, segment + 1);
+            segments[segment] = new float[Math.min(INITIAL_ROWS, rowsPerSegment) * dimension];
+        }
+
+        float[] data = segments[segment];
+        if (data.length < rows * dimension) {
+            int newRows = Math.min(rowsPerSegment, Math.max(rows, data.length / dimension * 2));
+            segments[segment] = Arrays.copyOf(data, newRows * dimension);
+        }
+    }
+
+    /**
+     * 행 벡터 복사
+     */
+    public void copyRow(int row, float[] dst) {
+        copyRow(row, dst, 0);
+    }
+
+    @Override
+    public void copyRow(int row, float[] dst, int dstOffset) {
+        checkRow(row);
+        System.arraycopy(segmentOf(row), offsetOf(row), dst, dstOffset, dimension);
+    }
+
+    @Override
+    public float dot(SimilarityKernel kernel, float[] query, int row) {
+        return kernel.dot(query, 0, segmentOf(row), offsetOf(row), dimension);
+    }
+
+    /**
+     * 세그먼트 단위로 연속 스캔 (문서 객체를 따라가지 않음)
+     */
+    @Override
+    public void dotRange(SimilarityKernel kernel, float[] query, int from, int to, float[] scores) {
+        int row = from;
+        while (row < to) {
+            float[] data = segmentOf(row);
+            int offset = offsetOf(row);
+            int segmentEnd = Math.min(to, (row / rowsPerSegment + 1) * rowsPerSegment);
+            for (; row < segmentEnd; row++, offset += dimension) {
+                scores[row - from] = kernel.dot(query, 0, data, offset, dimension);
+            }
+        }
+    }
+
+    /**
+     * 행이 들어 있는 세그먼트 배열
+     */
+    public float[] segmentOf(int row) {
+        return segments[row / rowsPerSegment];
+    }
+
+    /**
+     * 세그먼트 배열 안에서 행의 시작 위치
+     */
+    public int offsetOf(int row) {
+        return (row % rowsPerSegment) * dimension;
+    }
+
+    public float[] segment(int index) {
+        return segments[index];
+    }
+
+    /**
+     * 세그먼트에 실제로 채워진 행 수
+     */
+    public int rowsInSegment(int index) {
+        return Math.min(rowsPerSegment, size - index * rowsPerSegment);
+    }
+
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    public int rowsPerSegment() {
+        return rowsPerSegment;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + ", size " + size);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.aiprocess.step25;
+
+import java.util.*;
+
+/**
+ * 16비트(FP16/BF16) 연속 벡터 행렬 (row-major short[])
+ *
+ * FlatVectorMatrix와 같은 세그먼트 구조에 성분을 HalfPrecision으로 줄여 저장합니다 (메모리 절반).
+ * float로의 복원은 유사도 커널 안에서 내적과 함께 하므로 검색 중 float 행을 따로 만들지 않습니다.
+ */
+public class HalfFloatMatrix implements VectorStorage {
+
+    private static final int DEFAULT_SEGMENT_SHORTS = 1 << 21;  // 세그먼트당 4MB
+    private static final int INITIAL_ROWS = 16;
+
+    private final int dimension;
+    private final HalfPrecision precision;
+    private final int rowsPerSegment;
+    private short[][] segments = new short[0][];
+    private int size;
+
+    public HalfFloatMatrix(int dimension, HalfPrecision precision) {
+        this(dimension, precision, Math.max(1, DEFAULT_SEGMENT_SHORTS / dimension));
+    }
+
+    public HalfFloatMatrix(int dimension, HalfPrecision precision, int rowsPerSegment) {
+        if (dimension <= 0 || rowsPerSegment <= 0) {
+            throw new IllegalArgumentException("dimension과 rowsPerSegment는 양수여야 합니다");
+        }
+        this.dimension = dimension;
+        this.precision = precision;
+        this.rowsPerSegment = rowsPerSegment;
+    }
+
+    @Override
+    public int add(float[] src, int offset) {
+        int segment = size / rowsPerSegment;
+        int row = size % rowsPerSegment;
+        ensureCapacity(segment, row + 1);
+
+        precision.encode(src, offset, segments[segment], row * dimension, dimension);
+        return size++;
+    }
+
+    private void ensureCapacity(int segment, int rows) {
+        if (segment == segments.length) {
+            segments = Arrays.copyOf(segments, segment + 1);
+            segments[segment] = new short[Math.min(INITIAL_ROWS, rowsPerSegment) * dimension];
+        }
+
+        short[] data = segments[segment];
+        if (data.length < rows * dimension) {
+            int newRows = Math.min(rowsPerSegment, Math.max(rows, data.length / dimension * 2));
+            segments[segment] = Arrays.copyOf(data, newRows * dimension);
+        }
+    }
+
+    /**
+     * 행 벡터를 float로 복원해 복사
+     */
+    @Override
+    public void copyRow(int row, float[] dst, int dstOffset) {
+        checkRow(row);
+        precision.decode(segments[row / rowsPerSegment], (row % rowsPerSegment) * dimension,
+            dst, dstOffset, dimension);
+    }
+
+    @Override
+    public float dot(SimilarityKernel kernel, float[] query, int row) {
+        return kernel.dot(query, 0, segments[row / rowsPerSegment], (row % rowsPerSegment) * dimension,
+            dimension, precision);
+    }
+
+    @Override
+    public void dotRange(SimilarityKernel kernel, float[] query, int from, int to, float[] scores) {
+        int row = from;
+        while (row < to) {
+            short[] data = segments[row / rowsPerSegment];
+            int offset = (row % rowsPerSegment) * dimension;
+            int segmentEnd = Math.min(to, (row / rowsPerSegment + 1) * rowsPerSegment);
+            for (; row < segmentEnd; row++, offset += dimension) {
+                scores[row - from] = kernel.dot(query, 0, data, offset, dimension, precision);
+            }
+        }
+    }
+
+    public HalfPrecision precision() {
+        return precision;
+    }
+
+    /**
+     * 할당된 바이트 수 (마지막 세그먼트의 여유분 포함)
+     */
+    public long allocatedBytes() {
+        long bytes = 0;
+        for (short[] segment : segments) {
+            bytes += (long) segment.length * Short.BYTES;
+        }
+        return bytes;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + ", size " + size);
+        }
+    }
+}
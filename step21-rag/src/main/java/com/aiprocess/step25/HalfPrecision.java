@@ -0,0 +1,116 @@
+package com.aiprocess.step25;
+
+/**
+ * 16비트 부동소수점 형식 (벡터 저장용)
+ *
+ * - FP16 (IEEE 754 binary16): 지수 5비트 + 가수 10비트. 유효숫자 약 3자리, 범위 ±65504
+ * - BF16 (bfloat16): float32의 상위 16비트. 범위는 float32와 같고 유효숫자 약 2자리
+ *
+ * 둘 다 float 대비 메모리 절반이고, 가장 가까운 값으로 반올림(동률이면 짝수)합니다.
+ * 무한대는 저장하지 않고 최대 유한값으로 포화시키므로, 복원(decode)은 비트 연산과 곱셈 한 번이면 됩니다.
+ */
+public enum HalfPrecision {
+
+    FP16 {
+        @Override
+        public short encode(float value) {
+            return toFp16(value);
+        }
+
+        @Override
+        public float decode(short bits) {
+            return fp16ToFloat(bits);
+        }
+    },
+
+    BF16 {
+        @Override
+        public short encode(float value) {
+            return toBf16(value);
+        }
+
+        @Override
+        public float decode(short bits) {
+            return bf16ToFloat(bits);
+        }
+    };
+
+    /**
+     * FP16 복원 배율: 지수를 float 위치로 옮긴 값 × 2^(127 - 15) (정규수와 비정규수 모두 정확)
+     */
+    static final float FP16_SCALE = 0x1p112f;
+
+    public abstract short encode(float value);
+
+    public abstract float decode(short bits);
+
+    /**
+     * src[offset..offset+length) 를 dst[dstOffset..]에 16비트로 기록
+     */
+    public void encode(float[] src, int offset, short[] dst, int dstOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] = encode(src[offset + i]);
+        }
+    }
+
+    public void decode(short[] src, int offset, float[] dst, int dstOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] = decode(src[offset + i]);
+        }
+    }
+
+    static float fp16ToFloat(short bits) {
+        int h = bits;
+        return Float.intBitsToFloat(((h & 0x8000) << 16) | ((h & 0x7fff) << 13)) * FP16_SCALE;
+    }
+
+    static float bf16ToFloat(short bits) {
+        return Float.intBitsToFloat(bits << 16);
+    }
+
+    static short toFp16(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int abs = bits & 0x7fffffff;
+        checkNotNaN(abs, value);
+
+        if (abs >= 0x477ff000) {
+            return (short) (sign | 0x7bff);  // 65520 이상(무한대 포함) → 65504
+        }
+        if (abs < 0x38800000) {
+            // 2^-14 미만: 비정규수 (2^-25 이하는 0)
+            if (abs <= 0x33000000) return (short) sign;
+            int exponent = abs >>> 23;
+            int mantissa = (abs & 0x7fffff) | 0x800000;
+            int shift = 126 - exponent;
+            int h = mantissa >>> shift;
+            int rest = mantissa & ((1 << shift) - 1);
+            int half = 1 << (shift - 1);
+            if (rest > half || (rest == half && (h & 1) != 0)) h++;
+            return (short) (sign | h);
+        }
+
+        // 정규수: 지수 편향 127 → 15, 가수 23비트 → 10비트 (올림 자리올림은 지수로 넘어감)
+        int h = (abs - 0x38000000) >>> 13;
+        int rest = abs & 0x1fff;
+        if (rest > 0x1000 || (rest == 0x1000 && (h & 1) != 0)) h++;
+        return (short) (sign | h);
+    }
+
+    static short toBf16(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        checkNotNaN(bits & 0x7fffffff, value);
+
+        int rounded = (bits + 0x7fff + ((bits >>> 16) & 1)) >>> 16;
+        if ((rounded & 0x7f80) == 0x7f80) {
+            rounded = (bits >>> 16 & 0x8000) | 0x7f7f;  // 무한대 → 최대 유한값
+        }
+        return (short) rounded;
+    }
+
+    private static void checkNotNaN(int abs, float value) {
+        if (abs > 0x7f800000) {
+            throw new IllegalArgumentException("NaN은 16비트로 저장할 수 없습니다: " + value);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.aiprocess.step25;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * K-Means 군집화 (Lloyd 알고리즘)
+ *
+ * PQ 코드북, IVF 중심점 학습에 사용합니다.
+ * 데이터와 중심점은 모두 row-major float[] (count × dimension)
+ *
+ * 할당 단계(점마다 가장 가까운 중심점 찾기)가 비용 대부분이라
+ * 점이 충분히 많으면 ForkJoinPool 공용 풀에서 병렬로 계산합니다.
+ * 점마다 결과가 독립적이라 병렬 여부와 관계없이 결과는 같습니다.
+ */
+public class KMeans {
+
+    private static final long PARALLEL_WORK_THRESHOLD = 1 << 20;  // count × k × dimension
+
+    private final int k;
+    private final int dimension;
+    private final int maxIterations;
+    private final long seed;
+    private SimilarityKernel kernel = SimilarityKernels.get();
+
+    public KMeans(int k, int dimension, int maxIterations, long seed) {
+        if (k < 1 || dimension < 1 || maxIterations < 1) {
+            throw new IllegalArgumentException("k, dimension, maxIterations는 1 이상이어야 합니다");
+        }
+        this.k = k;
+        this.dimension = dimension;
+        this.maxIterations = maxIterations;
+        this.seed = seed;
+    }
+
+    /**
+     * 중심점 학습 (반환: k × dimension)
+     */
+    public float[] fit(float[] data, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("학습 데이터가 없습니다");
+        }
+        Random random = new Random(seed);
+        return iterate(data, count, initialCentroids(data, count, random), random);
+    }
+
+    /**
+     * 주어진 중심점에서 이어서 학습 (데이터가 바뀐 뒤 재학습할 때 처음부터 하지 않음)
+     *
+     * @param initial k × dimension 시작 중심점 (변경하지 않음)
+     */
+    public float[] fit(float[] data, int count, float[] initial) {
+        if (count < 1) {
+            throw new IllegalArgumentException("학습 데이터가 없습니다");
+        }
+        if (initial.length != k * dimension) {
+            throw new IllegalArgumentException(
+                "시작 중심점 크기 불일치: " + initial.length + " != " + k + " × " + dimension);
+        }
+        return iterate(data, count, initial.clone(), new Random(seed));
+    }
+
+    private float[] iterate(float[] data, int count, float[] centroids, Random random) {
+        int[] assignment = new int[count];
+        Arrays.fill(assignment, -1);
+
+        for (int iter = 0; iter < maxIterations; iter++) {
+            // 1. 할당: 각 점을 가장 가까운 중심점으로
+            int changed = assign(data, count, centroids, assignment);
+            if (changed == 0) break;
+
+            // 2. 갱신: 중심점 = 할당된 점들의 평균
+            updateCentroids(data, count, assignment, centroids, random);
+        }
+
+        return centroids;
+    }
+
+    /**
+     * 모든 점을 가장 가까운 중심점에 할당 (바뀐 점 수 반환)
+     */
+    public int assign(float[] data, int count, float[] centroids, int[] assignment) {
+        IntStream points = IntStream.range(0, count);
+        if ((long) count * k * dimension >= PARALLEL_WORK_THRESHOLD) {
+            points = points.parallel();
+        }
+        return points.map(i -> {
+            int nearest = nearest(centroids, data, i * dimension);
+            if (nearest == assignment[i]) return 0;
+            assignment[i] = nearest;
+            return 1;
+        }).sum();
+    }
+
+    /**
+     * 가장 가까운 중심점 번호 (L2 거리)
+     */
+    public int nearest(float[] centroids, float[] vector, int offset) {
+        int best = 0;
+        float bestDistance = Float.POSITIVE_INFINITY;
+        for (int c = 0; c < k; c++) {
+            float distance = kernel.squaredL2(vector, offset, centroids, c * dimension, dimension);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    public void setSimilarityKernel(SimilarityKernel kernel) {
+        this.kernel = Objects.requireNonNull(kernel);
+    }
+
+    public int k() {
+        return k;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * 서로 다른 점 k개를 무작위로 골라 초기 중심점으로 (점이 k개보다 적으면 반복 사용)
+     */
+    private float[] initialCentroids(float[] data, int count, Random random) {
+        float[] centroids = new float[k * dimension];
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) order[i] = i;
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        for (int c = 0; c < k; c++) {
+            System.arraycopy(data, order[c % count] * dimension, centroids, c * dimension, dimension);
+        }
+        return centroids;
+    }
+
+    private void updateCentroids(float[] data, int count, int[] assignment,
+                                   float[] centroids, Random random) {
+        float[] sums = new float[k * dimension];
+        int[] sizes = new int[k];
+
+        for (int i = 0; i < count; i++) {
+            int c = assignment[i];
+            sizes[c]++;
+            int base = c * dimension;
+            int row = i * dimension;
+            for (int d = 0; d < dimension; d++) {
+                sums[base + d] += data[row + d];
+            }
+        }
+
+        for (int c = 0; c < k; c++) {
+            int base = c * dimension;
+            if (sizes[c] == 0) {
+                // 빈 군집: 무작위 점으로 다시 시작
+                System.arraycopy(data, random.nextInt(count) * dimension, centroids, base, dimension);
+                continue;
+            }
+            for (int d = 0; d < dimension; d++) {
+                centroids[base + d] = sums[base + d] / sizes[c];
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.aiprocess.step25;
+
+/**
+ * 읽기 전용 기반 저장소 + 추가용 꼬리 저장소
+ *
+ * 파일에서 연 세그먼트 뒤에 새 문서를 붙일 때 사용합니다.
+ * 행 번호 [0, base.size()) 는 기반, 그 뒤는 꼬리로 보냅니다.
+ */
+public class LayeredVectorStorage implements VectorStorage {
+
+    private final VectorStorage base;
+    private final VectorStorage tail;
+    private final int baseSize;
+
+    public LayeredVectorStorage(VectorStorage base, VectorStorage tail) {
+        if (base.dimension() != tail.dimension()) {
+            throw new IllegalArgumentException(
+                "벡터 차원 불일치: " + base.dimension() + " != " + tail.dimension());
+        }
+        this.base = base;
+        this.tail = tail;
+        this.baseSize = base.size();
+    }
+
+    @Override
+    public int dimension() {
+        return base.dimension();
+    }
+
+    @Override
+    public int size() {
+        return baseSize + tail.size();
+    }
+
+    @Override
+    public int add(float[] src, int offset) {
+        return baseSize + tail.add(src, offset);
+    }
+
+    @Override
+    public void copyRow(int row, float[] dst, int dstOffset) {
+        if (row < baseSize) {
+            base.copyRow(row, dst, dstOffset);
+        } else {
+            tail.copyRow(row - baseSize, dst, dstOffset);
+        }
+    }
+
+    @Override
+    public float dot(SimilarityKernel kernel, float[] query, int row) {
+        return row < baseSize
+            ? base.dot(kernel, query, row)
+            : tail.dot(kernel, query, row - baseSize);
+    }
+
+    @Override
+    public void dotRange(SimilarityKernel kernel, float[] query, int from, int to, float[] scores) {
+        if (from < baseSize) {
+            base.dotRange(kernel, query, from, Math.min(to, baseSize), scores);
+        }
+        if (to > baseSize) {
+            int tailFrom = Math.max(from, baseSize);
+            float[] tailScores = from < baseSize ? new float[to - tailFrom] : scores;
+            tail.dotRange(kernel, query, tailFrom - baseSize, to - baseSize, tailScores);
+            if (tailScores != scores) {
+                System.arraycopy(tailScores, 0, scores, tailFrom - from, tailScores.length);
+            }
+        }
+    }
+
+    public VectorStorage getBase() {
+        return base;
+    }
+
+    public VectorStorage getTail() {
+        return tail;
+    }
+}
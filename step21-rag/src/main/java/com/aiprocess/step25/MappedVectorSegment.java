@@ -0,0 +1,107 @@
+package com.aiprocess.step25;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 메모리 매핑된 읽기 전용 벡터 행렬 (row-major, little-endian float32)
+ *
+ * 파일 영역을 FileChannel.map으로 읽기 전용 매핑해 힙으로 복사하지 않고 바로 스캔합니다.
+ * 페이지는 OS 페이지 캐시에 있으므로 같은 파일을 연 여러 JVM이 물리 메모리를 공유합니다.
+ *
+ * MappedByteBuffer 하나는 2GB를 넘을 수 없어 행 경계에 맞춘 여러 청크로 나눠 매핑합니다.
+ */
+public class MappedVectorSegment implements VectorStorage {
+
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    private final int dimension;
+    private final int size;
+    private final int rowBytes;
+    private final int rowsPerChunk;
+    private final MappedByteBuffer[] chunks;
+
+    /**
+     * channel의 [position, position + rows × dimension × 4) 영역을 매핑
+     */
+    public MappedVectorSegment(FileChannel channel, long position, int dimension, int rows)
+            throws IOException {
+        if (dimension <= 0 || rows < 0) {
+            throw new IllegalArgumentException("dimension은 양수, rows는 0 이상이어야 합니다");
+        }
+        this.dimension = dimension;
+        this.size = rows;
+        this.rowBytes = dimension * Float.BYTES;
+        this.rowsPerChunk = (int) Math.max(1, MAX_CHUNK_BYTES / rowBytes);
+
+        int chunkCount = (rows + rowsPerChunk - 1) / rowsPerChunk;
+        this.chunks = new MappedByteBuffer[chunkCount];
+        for (int c = 0; c < chunkCount; c++) {
+            int chunkRows = Math.min(rowsPerChunk, rows - c * rowsPerChunk);
+            long start = position + (long) c * rowsPerChunk * rowBytes;
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, (long) chunkRows * rowBytes);
+            chunk.order(ByteOrder.LITTLE_ENDIAN);
+            chunks[c] = chunk;
+        }
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int add(float[] src, int offset) {
+        throw new UnsupportedOperationException("매핑된 세그먼트는 읽기 전용입니다");
+    }
+
+    @Override
+    public void copyRow(int row, float[] dst, int dstOffset) {
+        checkRow(row);
+        MappedByteBuffer chunk = chunks[row / rowsPerChunk];
+        int offset = (row % rowsPerChunk) * rowBytes;
+        for (int i = 0; i < dimension; i++) {
+            dst[dstOffset + i] = chunk.getFloat(offset + i * Float.BYTES);
+        }
+    }
+
+    @Override
+    public float dot(SimilarityKernel kernel, float[] query, int row) {
+        return kernel.dot(query, 0, chunks[row / rowsPerChunk], (row % rowsPerChunk) * rowBytes, dimension);
+    }
+
+    @Override
+    public void dotRange(SimilarityKernel kernel, float[] query, int from, int to, float[] scores) {
+        int row = from;
+        while (row < to) {
+            MappedByteBuffer chunk = chunks[row / rowsPerChunk];
+            int offset = (row % rowsPerChunk) * rowBytes;
+            int chunkEnd = Math.min(to, (row / rowsPerChunk + 1) * rowsPerChunk);
+            for (; row < chunkEnd; row++, offset += rowBytes) {
+                scores[row - from] = kernel.dot(query, 0, chunk, offset, dimension);
+            }
+        }
+    }
+
+    /**
+     * 매핑 영역을 미리 페이지 캐시에 올림 (첫 검색 지연을 줄이고 싶을 때)
+     */
+    public void load() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.load();
+        }
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + ", size " + size);
+        }
+    }
+}
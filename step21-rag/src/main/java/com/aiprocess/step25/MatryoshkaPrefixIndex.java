@@ -0,0 +1,100 @@
+package com.aiprocess.step25;
+
+/**
+ * 앞부분 차원만 쓰는 1단계 인덱스 (Matryoshka 방식)
+ *
+ * 단위 벡터로 정규화한 뒤 앞쪽 prefixDimension개 성분만 연속 행렬(FlatVectorMatrix)에 따로 모아 둡니다.
+ * 1단계는 이 행렬만 훑어 앞 d'차원 내적으로 후보를 고르므로 스캔 비용이 d' / dimension으로 줄어듭니다.
+ * d'는 검색마다 prefixDimension 이하에서 고를 수 있습니다.
+ *
+ * 앞 차원에 정보가 몰리도록 학습된 임베딩(Matryoshka Representation Learning)일수록 후보 품질이 좋고,
+ * 차원마다 정보량이 고른 임베딩(SimpleEmbedding의 해싱 등)에서는 rescoreFactor를 넉넉히 잡아야 합니다.
+ */
+public class MatryoshkaPrefixIndex implements PrefilterIndex {
+
+    private final int dimension;
+    private final int prefixDimension;
+    private final FlatVectorMatrix prefixes;
+    private final SimilarityKernel kernel;
+
+    public MatryoshkaPrefixIndex(int dimension, int prefixDimension) {
+        this(dimension, prefixDimension, SimilarityKernels.get());
+    }
+
+    public MatryoshkaPrefixIndex(int dimension, int prefixDimension, SimilarityKernel kernel) {
+        if (prefixDimension <= 0 || prefixDimension > dimension) {
+            throw new IllegalArgumentException(
+                "prefixDimension은 1 이상 " + dimension + " 이하여야 합니다: " + prefixDimension);
+        }
+        this.dimension = dimension;
+        this.prefixDimension = prefixDimension;
+        this.prefixes = new FlatVectorMatrix(prefixDimension);
+        this.kernel = kernel;
+    }
+
+    @Override
+    public String name() {
+        return "prefix" + prefixDimension;
+    }
+
+    /**
+     * 전체 차원 노름으로 정규화한 뒤 앞부분만 저장 (앞 d'차원 내적 = 코사인의 앞 d'차원 몫)
+     */
+    @Override
+    public void add(float[] data, int offset) {
+        float norm = (float) Math.sqrt(kernel.dot(data, offset, data, offset, dimension));
+        float inv = norm == 0 ? 0 : 1 / norm;
+
+        float[] prefix = new float[prefixDimension];
+        for (int i = 0; i < prefixDimension; i++) {
+            prefix[i] = data[offset + i] * inv;
+        }
+        prefixes.add(prefix, 0);
+    }
+
+    @Override
+    public void search(float[] query, TopKSelector candidates) {
+        search(query, prefixDimension, candidates);
+    }
+
+    /**
+     * 앞 dims차원만으로 후보 선택 (query는 전체 차원 단위 벡터, 앞 dims개 성분만 읽음)
+     */
+    public void search(float[] query, int dims, TopKSelector candidates) {
+        if (dims <= 0 || dims > prefixDimension) {
+            throw new IllegalArgumentException(
+                "dims는 1 이상 " + prefixDimension + " 이하여야 합니다: " + dims);
+        }
+        if (candidates.capacity() == 0) return;
+
+        int ordinal = 0;
+        for (int s = 0; s < prefixes.segmentCount(); s++) {
+            float[] data = prefixes.segment(s);
+            int rows = prefixes.rowsInSegment(s);
+            for (int r = 0, base = 0; r < rows; r++, base += prefixDimension, ordinal++) {
+                candidates.offer(ordinal, kernel.dot(query, 0, data, base, dims));
+            }
+        }
+    }
+
+    /**
+     * 저장된 앞부분 차원 수 (검색마다 고를 수 있는 d'의 최댓값)
+     */
+    public int prefixDimension() {
+        return prefixDimension;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public int size() {
+        return prefixes.size();
+    }
+
+    @Override
+    public long memoryBytes() {
+        return (long) prefixes.size() * prefixDimension * 4;
+    }
+}
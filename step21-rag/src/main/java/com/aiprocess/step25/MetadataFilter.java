@@ -0,0 +1,89 @@
+package com.aiprocess.step25;
+
+import java.util.*;
+
+/**
+ * 메타데이터 필터 식 (검색 전에 문서 순번 비트맵으로 평가)
+ *
+ * <pre>
+ * MetadataFilter.eq("source", "manual.md")
+ *     .and(MetadataFilter.range("chunk_index", 0, 10))
+ *     .and(MetadataFilter.not(MetadataFilter.eq("lang", "en")))
+ * </pre>
+ */
+@FunctionalInterface
+public interface MetadataFilter {
+
+    /**
+     * 조건을 만족하는 문서 순번 집합
+     */
+    OrdinalBitmap evaluate(MetadataIndex index);
+
+    default MetadataFilter and(MetadataFilter other) {
+        return index -> evaluate(index).and(other.evaluate(index));
+    }
+
+    default MetadataFilter or(MetadataFilter other) {
+        return index -> evaluate(index).or(other.evaluate(index));
+    }
+
+    /**
+     * key = value
+     */
+    static MetadataFilter eq(String key, String value) {
+        return index -> index.get(key, value);
+    }
+
+    /**
+     * key ∈ values
+     */
+    static MetadataFilter in(String key, Collection<String> values) {
+        return index -> {
+            OrdinalBitmap result = new OrdinalBitmap();
+            for (String value : values) {
+                result = result.or(index.get(key, value));
+            }
+            return result;
+        };
+    }
+
+    /**
+     * min ≤ key ≤ max (숫자 값)
+     */
+    static MetadataFilter range(String key, double min, double max) {
+        return index -> index.range(key, min, max);
+    }
+
+    /**
+     * key가 있는 문서
+     */
+    static MetadataFilter exists(String key) {
+        return index -> index.withKey(key);
+    }
+
+    static MetadataFilter and(MetadataFilter... filters) {
+        return index -> {
+            OrdinalBitmap result = null;
+            for (MetadataFilter filter : filters) {
+                OrdinalBitmap bitmap = filter.evaluate(index);
+                result = result == null ? bitmap : result.and(bitmap);
+                if (result.isEmpty()) break;
+            }
+            return result == null ? index.all() : result;
+        };
+    }
+
+    static MetadataFilter or(MetadataFilter... filters) {
+        return index -> {
+            OrdinalBitmap result = new OrdinalBitmap();
+            for (MetadataFilter filter : filters) {
+                result = result.or(filter.evaluate(index));
+            }
+            return result;
+        };
+    }
+
+    static MetadataFilter not(MetadataFilter filter) {
+        return index -> index.all().andNot(filter.evaluate(index));
+    }
+}
@@ -0,0 +1,125 @@
+package com.aiprocess.step25;
+
+import java.util.*;
+
+/**
+ * 메타데이터 역색인: (key, value) → 문서 순번 비트맵
+ *
+ * 숫자로 읽히는 값은 정렬 맵에도 넣어 범위 조건(range)을 값 구간 합집합으로 계산합니다.
+ * 필터 평가 비용은 문서 수가 아니라 조건에 걸린 값/비트맵 크기에 비례합니다.
+ */
+public class MetadataIndex {
+
+    private final Map<String, Map<String, OrdinalBitmap>> postings = new HashMap<>();
+    private final Map<String, NavigableMap<Double, OrdinalBitmap>> numeric = new HashMap<>();
+    private int size;  // 색인된 문서 수 (NOT의 전체 집합 [0, size))
+
+    /**
+     * 문서 메타데이터 색인 (순번은 증가 순서로 추가)
+     */
+    public void add(int ordinal, Map<String, String> metadata) {
+        size = Math.max(size, ordinal + 1);
+        if (metadata == null) return;
+
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            String key = entry.getKey();
+            String value = entry.getValue();
+            if (key == null || value == null) continue;
+
+            postings.computeIfAbsent(key, k -> new HashMap<>())
+                .computeIfAbsent(value, v -> new OrdinalBitmap())
+                .add(ordinal);
+
+            Double number = parseNumber(value);
+            if (number != null) {
+                numeric.computeIfAbsent(key, k -> new TreeMap<>())
+                    .computeIfAbsent(number, n -> new OrdinalBitmap())
+                    .add(ordinal);
+            }
+        }
+    }
+
+    /**
+     * key = value 인 문서 (없으면 빈 비트맵, 반환값을 수정하면 안 됨)
+     */
+    public OrdinalBitmap get(String key, String value) {
+        Map<String, OrdinalBitmap> values = postings.get(key);
+        OrdinalBitmap bitmap = values == null ? null : values.get(value);
+        return bitmap == null ? new OrdinalBitmap() : bitmap;
+    }
+
+    /**
+     * min ≤ key ≤ max 인 문서 (숫자로 읽히는 값만 해당)
+     */
+    public OrdinalBitmap range(String key, double min, double max) {
+        NavigableMap<Double, OrdinalBitmap> values = numeric.get(key);
+        OrdinalBitmap result = new OrdinalBitmap();
+        if (values == null || min > max) return result;
+
+        for (OrdinalBitmap bitmap : values.subMap(min, true, max, true).values()) {
+            result = result.or(bitmap);
+        }
+        return result;
+    }
+
+    /**
+     * key가 있는 문서
+     */
+    public OrdinalBitmap withKey(String key) {
+        OrdinalBitmap result = new OrdinalBitmap();
+        Map<String, OrdinalBitmap> values = postings.get(key);
+        if (values == null) return result;
+
+        for (OrdinalBitmap bitmap : values.values()) {
+            result = result.or(bitmap);
+        }
+        return result;
+    }
+
+    /**
+     * 색인된 모든 문서 [0, size)
+     */
+    public OrdinalBitmap all() {
+        return OrdinalBitmap.range(0, size);
+    }
+
+    /**
+     * key의 서로 다른 값들
+     */
+    public Set<String> values(String key) {
+        Map<String, OrdinalBitmap> values = postings.get(key);
+        return values == null ? Set.of() : Collections.unmodifiableSet(values.keySet());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 대략적인 메모리 사용량 (비트맵 기준, 바이트)
+     */
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Map<String, OrdinalBitmap> values : postings.values()) {
+            for (OrdinalBitmap bitmap : values.values()) bytes += bitmap.memoryBytes();
+        }
+        for (NavigableMap<Double, OrdinalBitmap> values : numeric.values()) {
+            for (OrdinalBitmap bitmap : values.values()) bytes += bitmap.memoryBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * 숫자 모양인 값만 파싱 (대부분의 문자열에서 예외 비용을 피함)
+     */
+    private static Double parseNumber(String value) {
+        if (value.isEmpty()) return null;
+        char first = value.charAt(0);
+        if (!(Character.isDigit(first) || first == '-' || first == '+' || first == '.')) return null;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
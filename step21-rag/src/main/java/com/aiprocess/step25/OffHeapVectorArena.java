@@ -0,0 +1,234 @@
+package com.aiprocess.step25;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * off-heap 벡터 아레나 (direct ByteBuffer 청크, row-major little-endian float32 또는 16비트)
+ *
+ * 벡터를 힙 밖에 두어 GC가 보는 객체는 청크 버퍼 몇 개뿐입니다.
+ * 수백만 개의 float[]가 old 영역을 채워 긴 GC를 유발하는 문제를 피합니다.
+ *
+ * FlatVectorMatrix처럼 고정 크기 청크를 이어 붙이며, 마지막 청크만 작게 시작해 두 배씩 키웁니다.
+ * HalfPrecision을 주면 성분을 16비트로 줄여 저장하고 커널이 읽으면서 float로 복원합니다 (메모리 절반).
+ * close()하면 청크 메모리를 즉시 반환합니다 (이후 접근은 IllegalStateException).
+ * 검색 중인 스레드가 있을 때 close()하면 안 됩니다.
+ */
+public class OffHeapVectorArena implements VectorStorage, AutoCloseable {
+
+    private static final int DEFAULT_CHUNK_BYTES = 64 << 20;  // 청크당 64MB
+    private static final int INITIAL_ROWS = 16;
+
+    private final int dimension;
+    private final HalfPrecision precision;  // null이면 float32
+    private final int rowBytes;
+    private final int rowsPerChunk;
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+    private int size;
+    private volatile boolean closed;
+
+    public OffHeapVectorArena(int dimension) {
+        this(dimension, null);
+    }
+
+    public OffHeapVectorArena(int dimension, int rowsPerChunk) {
+        this(dimension, null, rowsPerChunk);
+    }
+
+    public OffHeapVectorArena(int dimension, HalfPrecision precision) {
+        this(dimension, precision,
+            Math.max(1, DEFAULT_CHUNK_BYTES / (dimension * (precision == null ? Float.BYTES : Short.BYTES))));
+    }
+
+    public OffHeapVectorArena(int dimension, HalfPrecision precision, int rowsPerChunk) {
+        if (dimension <= 0 || rowsPerChunk <= 0) {
+            throw new IllegalArgumentException("dimension과 rowsPerChunk는 양수여야 합니다");
+        }
+        int elementBytes = precision == null ? Float.BYTES : Short.BYTES;
+        if ((long) dimension * elementBytes * rowsPerChunk > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("청크가 2GB를 넘습니다: " + rowsPerChunk + "행");
+        }
+        this.dimension = dimension;
+        this.precision = precision;
+        this.rowBytes = dimension * elementBytes;
+        this.rowsPerChunk = rowsPerChunk;
+    }
+
+    @Override
+    public int add(float[] src, int offset) {
+        ensureOpen();
+        int chunk = size / rowsPerChunk;
+        int row = size % rowsPerChunk;
+        ensureCapacity(chunk, row + 1);
+
+        ByteBuffer data = chunks[chunk];
+        int position = row * rowBytes;
+        if (precision == null) {
+            for (int i = 0; i < dimension; i++) {
+                data.putFloat(position + i * Float.BYTES, src[offset + i]);
+            }
+        } else {
+            for (int i = 0; i < dimension; i++) {
+                data.putShort(position + i * Short.BYTES, precision.encode(src[offset + i]));
+            }
+        }
+        return size++;
+    }
+
+    /**
+     * 새 청크는 작게 시작해 두 배씩 키우고(복사), 가득 차면 다음 청크를 새로 할당
+     */
+    private void ensureCapacity(int chunk, int rows) {
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunk + 1);
+            chunks[chunk] = allocate(Math.min(INITIAL_ROWS, rowsPerChunk));
+        }
+
+        ByteBuffer data = chunks[chunk];
+        if (data.capacity() < rows * rowBytes) {
+            int newRows = Math.min(rowsPerChunk, Math.max(rows, data.capacity() / rowBytes * 2));
+            ByteBuffer grown = allocate(newRows);
+            grown.put(0, data, 0, data.capacity());
+            chunks[chunk] = grown;
+            free(data);
+        }
+    }
+
+    private ByteBuffer allocate(int rows) {
+        return ByteBuffer.allocateDirect(rows * rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public void copyRow(int row, float[] dst, int dstOffset) {
+        checkRow(row);
+        ByteBuffer data = chunks[row / rowsPerChunk];
+        int position = (row % rowsPerChunk) * rowBytes;
+        for (int i = 0; i < dimension; i++) {
+            dst[dstOffset + i] = precision == null
+                ? data.getFloat(position + i * Float.BYTES)
+                : precision.decode(data.getShort(position + i * Short.BYTES));
+        }
+    }
+
+    @Override
+    public float dot(SimilarityKernel kernel, float[] query, int row) {
+        ensureOpen();
+        ByteBuffer data = chunks[row / rowsPerChunk];
+        int position = (row % rowsPerChunk) * rowBytes;
+        return precision == null
+            ? kernel.dot(query, 0, data, position, dimension)
+            : kernel.dot(query, 0, data, position, dimension, precision);
+    }
+
+    @Override
+    public void dotRange(SimilarityKernel kernel, float[] query, int from, int to, float[] scores) {
+        ensureOpen();
+        int row = from;
+        while (row < to) {
+            ByteBuffer data = chunks[row / rowsPerChunk];
+            int position = (row % rowsPerChunk) * rowBytes;
+            int chunkEnd = Math.min(to, (row / rowsPerChunk + 1) * rowsPerChunk);
+            for (; row < chunkEnd; row++, position += rowBytes) {
+                scores[row - from] = precision == null
+                    ? kernel.dot(query, 0, data, position, dimension)
+                    : kernel.dot(query, 0, data, position, dimension, precision);
+            }
+        }
+    }
+
+    /**
+     * 청크 메모리 반환 (여러 번 호출해도 안전)
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        for (ByteBuffer chunk : chunks) {
+            free(chunk);
+        }
+        chunks = new ByteBuffer[0];
+        size = 0;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 할당된 off-heap 바이트 수 (마지막 청크의 여유분 포함)
+     */
+    public long allocatedBytes() {
+        long bytes = 0;
+        for (ByteBuffer chunk : chunks) {
+            bytes += chunk.capacity();
+        }
+        return bytes;
+    }
+
+    /**
+     * 16비트 저장 형식 (float32면 null)
+     */
+    public HalfPrecision precision() {
+        return precision;
+    }
+
+    public int chunkCount() {
+        return chunks.length;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("닫힌 off-heap 아레나입니다");
+        }
+    }
+
+    private void checkRow(int row) {
+        ensureOpen();
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + ", size " + size);
+        }
+    }
+
+    // direct 버퍼 즉시 해제 (sun.misc.Unsafe.invokeCleaner, 없으면 GC에 맡김)
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) return;
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            // 해제 실패 시 GC가 버퍼를 수거할 때 반환됨
+        }
+    }
+}
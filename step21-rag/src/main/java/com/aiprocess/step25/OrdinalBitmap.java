@@ -0,0 +1,380 @@
+package com.aiprocess.step25;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * 압축 비트맵 (문서 순번 집합, Roaring 방식)
+ *
+ * 순번의 상위 16비트로 청크를 나누고, 청크마다 원소 수에 따라 표현을 고릅니다.
+ * - 4096개 이하: 정렬된 char[] (원소당 2바이트)
+ * - 그보다 많으면: 65536비트 비트맵 (청크당 8KB 고정)
+ *
+ * 희소한 값(source 등)도 빽빽한 값도 작게 저장되고, AND/OR/ANDNOT은 청크 단위로 계산됩니다.
+ * 연산은 새 비트맵을 반환하며 피연산자는 바꾸지 않습니다.
+ */
+public class OrdinalBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;  // 65536비트
+
+    private char[] keys = new char[4];
+    private Object[] containers = new Object[4];   // char[] (배열) 또는 long[] (비트맵)
+    private int[] cardinalities = new int[4];
+    private int size;                              // 청크 수
+
+    public OrdinalBitmap() {
+    }
+
+    /**
+     * [from, to) 구간 전체 (NOT 연산의 전체 집합)
+     */
+    public static OrdinalBitmap range(int from, int to) {
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        for (int i = from; i < to; ) {
+            int chunkEnd = Math.min(to, ((i >>> 16) + 1) << 16);
+            if (chunkEnd - i > ARRAY_MAX) {
+                long[] words = new long[BITMAP_WORDS];
+                for (int j = i & 0xFFFF, end = j + (chunkEnd - i); j < end; j++) {
+                    words[j >>> 6] |= 1L << j;
+                }
+                bitmap.append((char) (i >>> 16), words, chunkEnd - i);
+            } else {
+                char[] values = new char[chunkEnd - i];
+                for (int j = 0; j < values.length; j++) {
+                    values[j] = (char) (i + j);
+                }
+                bitmap.append((char) (i >>> 16), values, values.length);
+            }
+            i = chunkEnd;
+        }
+        return bitmap;
+    }
+
+    /**
+     * 순번 추가 (증가 순서로 넣을 때 가장 빠름)
+     */
+    public void add(int ordinal) {
+        if (ordinal < 0) {
+            throw new IllegalArgumentException("순번은 0 이상이어야 합니다: " + ordinal);
+        }
+        char key = (char) (ordinal >>> 16);
+        char low = (char) ordinal;
+
+        int index = size > 0 && keys[size - 1] == key ? size - 1 : findKey(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, key, new char[4], 0);
+        }
+
+        Object container = containers[index];
+        int cardinality = cardinalities[index];
+        if (container instanceof long[]) {
+            long[] words = (long[]) container;
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                words[low >>> 6] |= bit;
+                cardinalities[index]++;
+            }
+            return;
+        }
+
+        char[] values = (char[]) container;
+        int position = cardinality > 0 && values[cardinality - 1] < low
+            ? -(cardinality + 1)
+            : Arrays.binarySearch(values, 0, cardinality, low);
+        if (position >= 0) return;
+        position = -position - 1;
+
+        if (cardinality == ARRAY_MAX) {
+            long[] words = toWords(values, cardinality);
+            words[low >>> 6] |= 1L << low;
+            containers[index] = words;
+            cardinalities[index] = cardinality + 1;
+            return;
+        }
+        if (cardinality == values.length) {
+            values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            containers[index] = values;
+        }
+        System.arraycopy(values, position, values, position + 1, cardinality - position);
+        values[position] = low;
+        cardinalities[index] = cardinality + 1;
+    }
+
+    public boolean contains(int ordinal) {
+        if (ordinal < 0) return false;
+        int index = findKey((char) (ordinal >>> 16));
+        if (index < 0) return false;
+
+        char low = (char) ordinal;
+        Object container = containers[index];
+        if (container instanceof long[]) {
+            return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) container, 0, cardinalities[index], low) >= 0;
+    }
+
+    /**
+     * 원소 수
+     */
+    public int cardinality() {
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            total += cardinalities[i];
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 교집합
+     */
+    public OrdinalBitmap and(OrdinalBitmap other) {
+        OrdinalBitmap result = new OrdinalBitmap();
+        int i = 0, j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else if (containers[i] instanceof char[] && other.containers[j] instanceof char[]) {
+                result.appendArrayIntersection(keys[i], (char[]) containers[i], cardinalities[i],
+                    (char[]) other.containers[j], other.cardinalities[j]);
+                i++;
+                j++;
+            } else {
+                result.appendWords(keys[i], andWords(i, other, j));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 합집합
+     */
+    public OrdinalBitmap or(OrdinalBitmap other) {
+        OrdinalBitmap result = new OrdinalBitmap();
+        int i = 0, j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.append(keys[i], copyContainer(containers[i]), cardinalities[i]);
+                i++;
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.append(other.keys[j], copyContainer(other.containers[j]), other.cardinalities[j]);
+                j++;
+            } else {
+                long[] words = toWords(i);
+                other.orInto(j, words);
+                result.appendWords(keys[i], words);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 차집합 (this - other)
+     */
+    public OrdinalBitmap andNot(OrdinalBitmap other) {
+        OrdinalBitmap result = new OrdinalBitmap();
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) j++;
+            if (j < other.size && other.keys[j] == keys[i]) {
+                long[] words = toWords(i);
+                long[] remove = other.toWords(j);
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    words[w] &= ~remove[w];
+                }
+                result.appendWords(keys[i], words);
+            } else {
+                result.append(keys[i], copyContainer(containers[i]), cardinalities[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 순번을 증가 순서로 전달
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            int high = keys[i] << 16;
+            Object container = containers[i];
+            if (container instanceof long[]) {
+                long[] words = (long[]) container;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                char[] values = (char[]) container;
+                for (int v = 0; v < cardinalities[i]; v++) {
+                    action.accept(high | values[v]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 순번 배열 (증가 순서)
+     */
+    public int[] toArray() {
+        int[] result = new int[cardinality()];
+        int[] position = {0};
+        forEach(ordinal -> result[position[0]++] = ordinal);
+        return result;
+    }
+
+    /**
+     * 대략적인 메모리 사용량 (바이트)
+     */
+    public long memoryBytes() {
+        long bytes = 16L + keys.length * 2L + containers.length * 8L + cardinalities.length * 4L;
+        for (int i = 0; i < size; i++) {
+            Object container = containers[i];
+            bytes += 16 + (container instanceof long[]
+                ? BITMAP_WORDS * 8L
+                : ((char[]) container).length * 2L);
+        }
+        return bytes;
+    }
+
+    // ----- 청크 연산 -----
+
+    private long[] andWords(int i, OrdinalBitmap other, int j) {
+        long[] words = toWords(i);
+        Object container = other.containers[j];
+        if (container instanceof long[]) {
+            long[] otherWords = (long[]) container;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] &= otherWords[w];
+            }
+        } else {
+            long[] otherWords = toWords((char[]) container, other.cardinalities[j]);
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] &= otherWords[w];
+            }
+        }
+        return words;
+    }
+
+    private void appendArrayIntersection(char key, char[] a, int aCount, char[] b, int bCount) {
+        char[] values = new char[Math.min(aCount, bCount)];
+        int n = 0;
+        for (int i = 0, j = 0; i < aCount && j < bCount; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                values[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        if (n > 0) {
+            append(key, values, n);
+        }
+    }
+
+    private void orInto(int index, long[] words) {
+        Object container = containers[index];
+        if (container instanceof long[]) {
+            long[] source = (long[]) container;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] |= source[w];
+            }
+        } else {
+            char[] values = (char[]) container;
+            for (int v = 0; v < cardinalities[index]; v++) {
+                words[values[v] >>> 6] |= 1L << values[v];
+            }
+        }
+    }
+
+    private long[] toWords(int index) {
+        Object container = containers[index];
+        if (container instanceof long[]) {
+            return ((long[]) container).clone();
+        }
+        return toWords((char[]) container, cardinalities[index]);
+    }
+
+    private static long[] toWords(char[] values, int cardinality) {
+        long[] words = new long[BITMAP_WORDS];
+        for (int v = 0; v < cardinality; v++) {
+            words[values[v] >>> 6] |= 1L << values[v];
+        }
+        return words;
+    }
+
+    /**
+     * 비트맵 청크를 원소 수에 맞는 표현으로 붙임 (비었으면 생략)
+     */
+    private void appendWords(char key, long[] words) {
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        if (cardinality == 0) return;
+        if (cardinality > ARRAY_MAX) {
+            append(key, words, cardinality);
+            return;
+        }
+
+        char[] values = new char[cardinality];
+        int n = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            long word = words[w];
+            while (word != 0) {
+                values[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        append(key, values, cardinality);
+    }
+
+    private static Object copyContainer(Object container) {
+        return container instanceof long[] ? ((long[]) container).clone() : ((char[]) container).clone();
+    }
+
+    private void append(char key, Object container, int cardinality) {
+        insertChunk(size, key, container, cardinality);
+    }
+
+    private void insertChunk(int index, char key, Object container, int cardinality) {
+        if (size == keys.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+            cardinalities = Arrays.copyOf(cardinalities, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        System.arraycopy(cardinalities, index, cardinalities, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        cardinalities[index] = cardinality;
+        size++;
+    }
+
+    private int findKey(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    @Override
+    public String toString() {
+        return "OrdinalBitmap{cardinality=" + cardinality() + ", chunks=" + size + "}";
+    }
+}
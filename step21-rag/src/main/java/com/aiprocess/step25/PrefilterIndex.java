@@ -0,0 +1,33 @@
+package com.aiprocess.step25;
+
+/**
+ * 1단계 근사 검색 인덱스
+ *
+ * 압축된 벡터로 전체를 빠르게 훑어 후보를 고르면,
+ * SimpleVectorStore가 후보만 원본 float 벡터로 다시 점수 매깁니다 (rescoring).
+ * 저장 순번(ordinal)은 저장소와 같아야 합니다.
+ */
+public interface PrefilterIndex {
+
+    /**
+     * 인덱스 이름 (리포트 표시용)
+     */
+    String name();
+
+    /**
+     * 벡터 추가: data[offset..offset+dimension) (다음 ordinal = size())
+     */
+    void add(float[] data, int offset);
+
+    /**
+     * 근사 코사인 유사도로 후보 선택 (query는 단위 벡터)
+     */
+    void search(float[] query, TopKSelector candidates);
+
+    int size();
+
+    /**
+     * 인덱스가 차지하는 대략적인 메모리 (바이트)
+     */
+    long memoryBytes();
+}
@@ -0,0 +1,181 @@
+package com.aiprocess.step25;
+
+import java.util.*;
+
+/**
+ * Product Quantization (PQ) 인덱스
+ *
+ * 벡터를 m개의 부분 공간으로 나누고, 부분 공간마다 k-means로 학습한 코드북(최대 256개 중심점)의
+ * 번호 1바이트만 저장합니다. 벡터 하나 = m 바이트 (예: 768차원 float 3072바이트 → m=96이면 96바이트)
+ *
+ * 검색은 비대칭 거리 계산(ADC): 쿼리는 원본 그대로 두고, 쿼리마다
+ * 부분 공간별 "쿼리 조각 · 중심점" 내적 표(m × ksub)를 한 번 만든 뒤 코드로 표를 찾아 더합니다.
+ */
+public class ProductQuantizationIndex implements PrefilterIndex {
+
+    private static final int SEGMENT_BYTES = 1 << 22;  // 세그먼트당 4MB
+
+    private final int dimension;
+    private final int subspaces;         // m
+    private final int subDimension;      // dimension / m
+    private final int centroids;         // ksub (≤ 256)
+    private final int rowsPerSegment;
+    private float[][] codebooks;         // [m][ksub × subDimension]
+    private byte[][] segments = new byte[0][];
+    private int size;
+
+    public ProductQuantizationIndex(int dimension, int subspaces, int centroids) {
+        if (subspaces < 1 || dimension % subspaces != 0) {
+            throw new IllegalArgumentException("dimension은 subspaces로 나누어떨어져야 합니다: "
+                + dimension + " / " + subspaces);
+        }
+        if (centroids < 1 || centroids > 256) {
+            throw new IllegalArgumentException("centroids는 1~256이어야 합니다: " + centroids);
+        }
+        this.dimension = dimension;
+        this.subspaces = subspaces;
+        this.subDimension = dimension / subspaces;
+        this.centroids = centroids;
+        this.rowsPerSegment = Math.max(1, SEGMENT_BYTES / subspaces);
+    }
+
+    @Override
+    public String name() {
+        return "pq(m=" + subspaces + ", k=" + centroids + ")";
+    }
+
+    /**
+     * 코드북 학습 (samples: count × dimension, row-major)
+     */
+    public void train(float[] samples, int count, int iterations, long seed) {
+        float[] unit = new float[count * dimension];
+        for (int i = 0; i < count; i++) {
+            normalizeInto(samples, i * dimension, unit, i * dimension);
+        }
+
+        float[][] books = new float[subspaces][];
+        float[] sub = new float[count * subDimension];
+        for (int m = 0; m < subspaces; m++) {
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(unit, i * dimension + m * subDimension, sub, i * subDimension, subDimension);
+            }
+            books[m] = new KMeans(centroids, subDimension, iterations, seed + m).fit(sub, count);
+        }
+        this.codebooks = books;
+    }
+
+    public boolean isTrained() {
+        return codebooks != null;
+    }
+
+    @Override
+    public void add(float[] data, int offset) {
+        if (!isTrained()) {
+            throw new IllegalStateException("train()을 먼저 호출하세요");
+        }
+
+        int segment = size / rowsPerSegment;
+        int row = size % rowsPerSegment;
+        if (segment == segments.length) {
+            segments = Arrays.copyOf(segments, segment + 1);
+            segments[segment] = new byte[Math.min(rowsPerSegment, 16) * subspaces];
+        }
+        if (segments[segment].length < (row + 1) * subspaces) {
+            int rows = Math.min(rowsPerSegment, segments[segment].length / subspaces * 2);
+            segments[segment] = Arrays.copyOf(segments[segment], rows * subspaces);
+        }
+
+        float[] unit = new float[dimension];
+        normalizeInto(data, offset, unit, 0);
+        encode(unit, segments[segment], row * subspaces);
+        size++;
+    }
+
+    /**
+     * 부분 공간마다 가장 가까운 중심점 번호 기록
+     */
+    private void encode(float[] unit, byte[] out, int outOffset) {
+        SimilarityKernel kernel = SimilarityKernels.get();
+        for (int m = 0; m < subspaces; m++) {
+            float[] book = codebooks[m];
+            int best = 0;
+            float bestDistance = Float.POSITIVE_INFINITY;
+            for (int c = 0; c < centroids; c++) {
+                float distance = kernel.squaredL2(unit, m * subDimension, book, c * subDimension, subDimension);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = c;
+                }
+            }
+            out[outOffset + m] = (byte) best;
+        }
+    }
+
+    @Override
+    public void search(float[] query, TopKSelector candidates) {
+        float[] table = lookupTable(query);
+
+        int ordinal = 0;
+        for (int s = 0; s < segments.length; s++) {
+            byte[] codes = segments[s];
+            int rows = Math.min(rowsPerSegment, size - s * rowsPerSegment);
+            for (int r = 0, base = 0; r < rows; r++, base += subspaces, ordinal++) {
+                float score = 0;
+                for (int m = 0, t = 0; m < subspaces; m++, t += centroids) {
+                    score += table[t + (codes[base + m] & 0xFF)];
+                }
+                candidates.offer(ordinal, score);
+            }
+        }
+    }
+
+    /**
+     * 쿼리별 ADC 표: table[m × ksub + c] = query[m번째 조각] · codebook[m][c]
+     */
+    public float[] lookupTable(float[] query) {
+        SimilarityKernel kernel = SimilarityKernels.get();
+        float[] table = new float[subspaces * centroids];
+        for (int m = 0; m < subspaces; m++) {
+            float[] book = codebooks[m];
+            for (int c = 0; c < centroids; c++) {
+                table[m * centroids + c] = kernel.dot(query, m * subDimension, book, c * subDimension, subDimension);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 코드로 복원한 근사 벡터 (정확도 분석용)
+     */
+    public float[] reconstruct(int ordinal) {
+        byte[] codes = segments[ordinal / rowsPerSegment];
+        int base = (ordinal % rowsPerSegment) * subspaces;
+        float[] vector = new float[dimension];
+        for (int m = 0; m < subspaces; m++) {
+            int c = codes[base + m] & 0xFF;
+            System.arraycopy(codebooks[m], c * subDimension, vector, m * subDimension, subDimension);
+        }
+        return vector;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return (long) size * subspaces + (long) centroids * dimension * 4;
+    }
+
+    private void normalizeInto(float[] src, int srcOffset, float[] dst, int dstOffset) {
+        float norm = 0;
+        for (int i = 0; i < dimension; i++) {
+            norm += src[srcOffset + i] * src[srcOffset + i];
+        }
+        norm = (float) Math.sqrt(norm);
+        for (int i = 0; i < dimension; i++) {
+            dst[dstOffset + i] = norm > 0 ? src[srcOffset + i] / norm : 0f;
+        }
+    }
+}
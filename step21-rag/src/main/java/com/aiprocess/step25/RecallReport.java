@@ -0,0 +1,79 @@
+package com.aiprocess.step25;
+
+import java.util.*;
+
+/**
+ * 근사 검색 정확도 리포트
+ *
+ * 같은 쿼리를 기준 검색기(전수 float 검색)와 비교 대상에 던져
+ * recall@K와 상위 K개 평균 유사도 차이를 계산합니다.
+ */
+public class RecallReport {
+
+    public final String name;
+    public final int queries;
+    public final int topK;
+    public final double recall;          // 기준 Top-K 중 찾아낸 비율 (평균)
+    public final double meanScoreLoss;   // 기준 대비 Top-K 평균 유사도 감소량
+
+    public RecallReport(String name, int queries, int topK, double recall, double meanScoreLoss) {
+        this.name = name;
+        this.queries = queries;
+        this.topK = topK;
+        this.recall = recall;
+        this.meanScoreLoss = meanScoreLoss;
+    }
+
+    /**
+     * 두 검색기의 결과 비교 (문서는 저장 순번, 없으면 id + 내용으로 식별)
+     */
+    public static RecallReport compare(String name, List<String> queries, int topK,
+                                       VectorRetriever reference, VectorRetriever candidate) {
+        double recallSum = 0;
+        double lossSum = 0;
+
+        for (String query : queries) {
+            List<SimpleVectorStore.SearchResult> expected = reference.search(query, topK);
+            List<SimpleVectorStore.SearchResult> actual = candidate.search(query, topK);
+            if (expected.isEmpty()) {
+                recallSum += 1;
+                continue;
+            }
+
+            Set<Object> expectedKeys = new HashSet<>();
+            for (SimpleVectorStore.SearchResult r : expected) {
+                expectedKeys.add(keyOf(r));
+            }
+
+            int found = 0;
+            for (SimpleVectorStore.SearchResult r : actual) {
+                if (expectedKeys.contains(keyOf(r))) found++;
+            }
+            recallSum += (double) found / expected.size();
+            lossSum += meanSimilarity(expected) - meanSimilarity(actual);
+        }
+
+        int n = Math.max(1, queries.size());
+        return new RecallReport(name, queries.size(), topK, recallSum / n, lossSum / n);
+    }
+
+    private static Object keyOf(SimpleVectorStore.SearchResult result) {
+        if (result.ordinal >= 0) return result.ordinal;
+        return result.document.id + "\u0000" + result.document.content;
+    }
+
+    private static double meanSimilarity(List<SimpleVectorStore.SearchResult> results) {
+        if (results.isEmpty()) return 0;
+        double sum = 0;
+        for (SimpleVectorStore.SearchResult r : results) {
+            sum += r.similarity;
+        }
+        return sum / results.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%s] 쿼리 %d개, recall@%d = %.3f, 평균 유사도 손실 = %.4f",
+            name, queries, topK, recall, meanScoreLoss);
+    }
+}
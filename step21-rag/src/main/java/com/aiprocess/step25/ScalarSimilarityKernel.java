@@ -0,0 +1,90 @@
+package com.aiprocess.step25;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 스칼라 유사도 커널 (기준 구현)
+ *
+ * SimpleEmbedding.cosineSimilarity와 같은 순서로 누적하므로 결과가 비트 단위로 같습니다.
+ * Vector API를 쓸 수 없는 환경의 대체 커널
+ */
+public class ScalarSimilarityKernel implements SimilarityKernel {
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float dot = 0;
+        for (int i = 0; i < length; i++) {
+            dot += a[aOffset + i] * b[bOffset + i];
+        }
+        return dot;
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, ByteBuffer b, int bOffset, int length) {
+        float dot = 0;
+        for (int i = 0; i < length; i++) {
+            dot += a[aOffset + i] * b.getFloat(bOffset + i * Float.BYTES);
+        }
+        return dot;
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, short[] b, int bOffset, int length, HalfPrecision precision) {
+        float dot = 0;
+        if (precision == HalfPrecision.BF16) {
+            for (int i = 0; i < length; i++) {
+                dot += a[aOffset + i] * HalfPrecision.bf16ToFloat(b[bOffset + i]);
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                dot += a[aOffset + i] * HalfPrecision.fp16ToFloat(b[bOffset + i]);
+            }
+        }
+        return dot;
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, ByteBuffer b, int bOffset, int length, HalfPrecision precision) {
+        float dot = 0;
+        if (precision == HalfPrecision.BF16) {
+            for (int i = 0; i < length; i++) {
+                dot += a[aOffset + i] * HalfPrecision.bf16ToFloat(b.getShort(bOffset + i * Short.BYTES));
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                dot += a[aOffset + i] * HalfPrecision.fp16ToFloat(b.getShort(bOffset + i * Short.BYTES));
+            }
+        }
+        return dot;
+    }
+
+    @Override
+    public float cosine(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float dot = 0, normA = 0, normB = 0;
+
+        for (int i = 0; i < length; i++) {
+            float ai = a[aOffset + i];
+            float bi = b[bOffset + i];
+            dot += ai * bi;
+            normA += ai * ai;
+            normB += bi * bi;
+        }
+
+        return dot / (float) (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+
+    @Override
+    public float squaredL2(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            float d = a[aOffset + i] - b[bOffset + i];
+            sum += d * d;
+        }
+        return sum;
+    }
+}
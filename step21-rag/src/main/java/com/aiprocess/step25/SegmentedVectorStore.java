@@ -0,0 +1,496 @@
+package com.aiprocess.step25;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * LSM 방식 세그먼트 벡터 저장소 (추가/수정/삭제 지원)
+ *
+ * 새 문서는 변경 가능한 메모리 세그먼트(memtable)에 쌓이고, 일정 크기가 되면 봉인되어
+ * 더 이상 바뀌지 않는 세그먼트가 됩니다. 삭제와 수정은 벡터를 지우지 않고 삭제 표시(tombstone)만 남깁니다.
+ *
+ * 백그라운드 병합이 작은 세그먼트들을 하나로 합치면서 삭제된 벡터를 버립니다.
+ * 병합 결과는 새 스냅샷으로 한 번에 교체되므로 검색은 병합 중에도 막히지 않습니다.
+ * (검색은 시작 시점의 스냅샷을 끝까지 사용)
+ *
+ * 병합 정책:
+ * - 봉인 세그먼트가 maxSegments개를 넘으면 가장 작은 mergeFactor개를 합침
+ * - 삭제 비율이 EXPUNGE_DELETED_RATIO 이상인 세그먼트는 단독으로 다시 씀
+ */
+public class SegmentedVectorStore implements VectorRetriever, AutoCloseable {
+
+    private static final int DEFAULT_SEAL_THRESHOLD = 10_000;
+    private static final int DEFAULT_MAX_SEGMENTS = 8;
+    private static final int DEFAULT_MERGE_FACTOR = 4;
+    private static final double EXPUNGE_DELETED_RATIO = 0.3;
+    private static final long MERGE_INTERVAL_MILLIS = 1_000;
+
+    private final SimpleEmbedding embedding;
+    private final int sealThreshold;
+    private final int maxSegments;
+    private final int mergeFactor;
+
+    // 쓰기(추가/삭제/봉인/병합 교체)는 writeLock으로 직렬화, 검색은 volatile 스냅샷만 읽음
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Map<String, Location> locations = new HashMap<>();
+    private volatile Snapshot snapshot;
+
+    private final ScheduledExecutorService merger;
+    private final Object mergeMonitor = new Object();   // 병합은 한 번에 하나만
+    private volatile long mergeCount;
+    private volatile boolean closed;
+
+    public SegmentedVectorStore(SimpleEmbedding embedding) {
+        this(embedding, DEFAULT_SEAL_THRESHOLD, DEFAULT_MAX_SEGMENTS, DEFAULT_MERGE_FACTOR);
+    }
+
+    /**
+     * @param sealThreshold memtable이 이 크기가 되면 봉인
+     * @param maxSegments   봉인 세그먼트가 이보다 많으면 병합
+     * @param mergeFactor   한 번에 합칠 세그먼트 수
+     */
+    public SegmentedVectorStore(SimpleEmbedding embedding, int sealThreshold, int maxSegments, int mergeFactor) {
+        if (sealThreshold < 1 || maxSegments < 1 || mergeFactor < 2) {
+            throw new IllegalArgumentException("sealThreshold, maxSegments는 1 이상, mergeFactor는 2 이상이어야 합니다");
+        }
+        this.embedding = embedding;
+        this.sealThreshold = sealThreshold;
+        this.maxSegments = maxSegments;
+        this.mergeFactor = mergeFactor;
+        this.snapshot = new Snapshot(List.of(), newSegment(sealThreshold));
+
+        this.merger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "segment-merger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        merger.scheduleWithFixedDelay(this::backgroundMerge,
+            MERGE_INTERVAL_MILLIS, MERGE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 문서 추가 (같은 id가 있으면 이전 문서를 삭제 표시하고 새 내용으로 교체)
+     */
+    public void addDocument(String id, String content, Map<String, String> metadata) {
+        float[] vector = embedding.embed(content);  // 임베딩은 락 밖에서
+        writeLock.lock();
+        try {
+            insert(id, content, vector, 0, metadata);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 미리 계산한 벡터로 문서 추가 (같은 id가 있으면 교체)
+     */
+    public void addDocument(String id, String content, float[] vector, Map<String, String> metadata) {
+        if (vector.length != embedding.getDimension()) {
+            throw new IllegalArgumentException(
+                "벡터 차원 불일치: " + vector.length + " != " + embedding.getDimension());
+        }
+        writeLock.lock();
+        try {
+            insert(id, content, vector, 0, metadata);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 문서 수정 (없던 id면 false, 아무것도 하지 않음)
+     */
+    public boolean updateDocument(String id, String content, Map<String, String> metadata) {
+        float[] vector = embedding.embed(content);
+        writeLock.lock();
+        try {
+            if (!locations.containsKey(id)) return false;
+            insert(id, content, vector, 0, metadata);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 여러 문서를 배치 임베딩으로 추가 (같은 id는 교체)
+     */
+    public void addDocuments(List<String> ids, List<String> contents, List<Map<String, String>> metadata) {
+        if (ids.size() != contents.size() || metadata.size() != contents.size()) {
+            throw new IllegalArgumentException("ids, contents, metadata 크기가 다릅니다");
+        }
+        int dim = embedding.getDimension();
+        float[] vectors = embedding.embedBatch(contents);
+
+        writeLock.lock();
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                insert(ids.get(i), contents.get(i), vectors, i * dim, metadata.get(i));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 문서 삭제 (삭제 표시만 남기고 벡터는 병합 때 제거, 없던 id면 false)
+     */
+    public boolean deleteDocument(String id) {
+        writeLock.lock();
+        try {
+            Location location = locations.remove(id);
+            if (location == null) return false;
+            location.segment.delete(location.ordinal);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * memtable에 추가 (writeLock 안에서 호출)
+     */
+    private void insert(String id, String content, float[] data, int offset, Map<String, String> metadata) {
+        ensureOpen();
+        Location previous = locations.get(id);
+        if (previous != null) {
+            previous.segment.delete(previous.ordinal);
+        }
+
+        Segment memtable = snapshot.memtable;
+        int dim = embedding.getDimension();
+        float[] vector = offset == 0 && data.length == dim ? data : Arrays.copyOfRange(data, offset, offset + dim);
+        int ordinal;
+        memtable.lock.writeLock().lock();
+        try {
+            ordinal = memtable.store.size();
+            memtable.store.addDocument(id, content, vector, metadata);
+        } finally {
+            memtable.lock.writeLock().unlock();
+        }
+        locations.put(id, new Location(memtable, ordinal));
+
+        if (memtable.store.size() >= sealThreshold) {
+            seal();
+        }
+    }
+
+    /**
+     * memtable 봉인: 읽기 전용 세그먼트 목록에 넣고 새 memtable로 교체 (writeLock 안에서 호출)
+     */
+    private void seal() {
+        Snapshot current = snapshot;
+        if (current.memtable.store.size() == 0) return;
+
+        List<Segment> sealed = new ArrayList<>(current.sealed);
+        sealed.add(current.memtable);
+        snapshot = new Snapshot(List.copyOf(sealed), newSegment(sealThreshold));
+    }
+
+    /**
+     * memtable을 즉시 봉인 (남은 문서도 병합 대상이 되게 할 때)
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            seal();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 유사한 문서 검색 (락 없이 현재 스냅샷의 모든 세그먼트를 검색해 병합)
+     *
+     * 세그먼트마다 삭제 표시 수만큼 더 뽑아 걸러내므로 살아 있는 문서 topK개가 보장됩니다.
+     */
+    @Override
+    public List<SimpleVectorStore.SearchResult> search(String query, int topK) {
+        return search(query, topK, null);
+    }
+
+    /**
+     * 메타데이터 필터를 만족하는 문서 중에서 검색 (세그먼트마다 비트맵 필터 검색)
+     *
+     * @param filter null이면 필터 없음
+     */
+    public List<SimpleVectorStore.SearchResult> search(String query, int topK, MetadataFilter filter) {
+        float[] queryVector = embedding.embed(query);
+        Snapshot current = snapshot;
+
+        List<SimpleVectorStore.SearchResult> candidates = new ArrayList<>();
+        for (Segment segment : current.sealed) {
+            collect(segment, queryVector, topK, filter, candidates);
+        }
+        current.memtable.lock.readLock().lock();
+        try {
+            collect(current.memtable, queryVector, topK, filter, candidates);
+        } finally {
+            current.memtable.lock.readLock().unlock();
+        }
+
+        TopKSelector top = new TopKSelector(Math.min(topK, candidates.size()));
+        for (int i = 0; i < candidates.size(); i++) {
+            top.offer(i, candidates.get(i).similarity);
+        }
+        top.sortDescending();
+
+        List<SimpleVectorStore.SearchResult> results = new ArrayList<>(top.size());
+        for (int i = 0; i < top.size(); i++) {
+            SimpleVectorStore.SearchResult candidate = candidates.get(top.ordinalAt(i));
+            results.add(new SimpleVectorStore.SearchResult(candidate.document, candidate.similarity));
+        }
+        return results;
+    }
+
+    private void collect(Segment segment, float[] queryVector, int topK, MetadataFilter filter,
+                         List<SimpleVectorStore.SearchResult> out) {
+        int size = segment.store.size();
+        if (size == 0 || topK <= 0) return;
+
+        int k = (int) Math.min(size, (long) topK + segment.deletedCount());
+        List<SimpleVectorStore.SearchResult> found = filter == null
+            ? segment.store.search(queryVector, k)
+            : segment.store.search(queryVector, k, filter);
+        int live = 0;
+        for (SimpleVectorStore.SearchResult result : found) {
+            if (segment.isDeleted(result.ordinal)) continue;
+            out.add(result);
+            if (++live == topK) break;
+        }
+    }
+
+    /**
+     * 병합할 세그먼트가 있으면 병합 (백그라운드 스레드가 주기적으로 호출, 직접 호출해도 됨)
+     *
+     * @return 병합을 수행했으면 true
+     */
+    public boolean maybeMerge() {
+        synchronized (mergeMonitor) {
+            List<Segment> sources = selectMerge(snapshot.sealed);
+            if (sources.isEmpty()) return false;
+
+            // 1. 락 없이 살아 있는 문서만 새 세그먼트로 복사 (검색/쓰기와 동시에 진행)
+            int live = 0;
+            for (Segment source : sources) live += source.store.size() - source.deletedCount();
+            Segment merged = newSegment(Math.max(1, live));
+            Map<Segment, int[]> remap = new HashMap<>();
+            for (Segment source : sources) {
+                int[] newOrdinals = new int[source.store.size()];
+                Arrays.fill(newOrdinals, -1);
+                for (int i = 0; i < newOrdinals.length; i++) {
+                    if (source.isDeleted(i)) continue;
+                    SimpleVectorStore.Document document = source.store.getDocument(i);
+                    newOrdinals[i] = merged.store.size();
+                    merged.store.addDocument(document.id, document.content,
+                        source.store.getVector(i), document.metadata);
+                }
+                remap.put(source, newOrdinals);
+            }
+
+            // 2. 쓰기를 잠시 막고 병합 중 생긴 삭제를 반영, 위치를 옮긴 뒤 스냅샷 교체
+            writeLock.lock();
+            try {
+                if (closed) return false;
+                for (Segment source : sources) {
+                    int[] newOrdinals = remap.get(source);
+                    for (int i = 0; i < newOrdinals.length; i++) {
+                        if (newOrdinals[i] < 0) continue;
+                        String id = merged.store.getDocument(newOrdinals[i]).id;
+                        Location location = locations.get(id);
+                        if (location != null && location.segment == source && location.ordinal == i) {
+                            locations.put(id, new Location(merged, newOrdinals[i]));
+                        } else {
+                            merged.delete(newOrdinals[i]);  // 병합 중 삭제/교체된 문서
+                        }
+                    }
+                }
+
+                // 살아 있는 문서가 없으면 병합 결과를 넣지 않고 원본만 뺌 (빈 세그먼트를 남기지 않음)
+                boolean empty = merged.store.size() == merged.deletedCount();
+                Snapshot current = snapshot;
+                List<Segment> sealed = new ArrayList<>(current.sealed.size() - sources.size() + 1);
+                boolean placed = empty;
+                for (Segment segment : current.sealed) {
+                    if (!remap.containsKey(segment)) {
+                        sealed.add(segment);
+                    } else if (!placed) {
+                        sealed.add(merged);  // 첫 원본 자리에 넣어 대략적인 시간 순서 유지
+                        placed = true;
+                    }
+                }
+                snapshot = new Snapshot(List.copyOf(sealed), current.memtable);
+                mergeCount++;
+            } finally {
+                writeLock.unlock();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 병합 대상 선택: 삭제가 많은 세그먼트 하나, 또는 세그먼트가 많으면 가장 작은 mergeFactor개
+     *
+     * 빈 세그먼트는 삭제 비율 조건(0 ≥ 0)을 항상 만족하므로 제외 (같은 세그먼트를 끝없이 다시 쓰지 않도록)
+     */
+    private List<Segment> selectMerge(List<Segment> sealed) {
+        for (Segment segment : sealed) {
+            int size = segment.store.size();
+            if (size > 0 && segment.deletedCount() >= EXPUNGE_DELETED_RATIO * size) {
+                return List.of(segment);
+            }
+        }
+        if (sealed.size() <= maxSegments) {
+            return List.of();
+        }
+
+        List<Segment> bySize = new ArrayList<>(sealed);
+        bySize.sort(Comparator.comparingInt(segment -> segment.store.size() - segment.deletedCount()));
+        return bySize.subList(0, Math.min(mergeFactor, bySize.size()));
+    }
+
+    private void backgroundMerge() {
+        if (closed) return;
+        while (maybeMerge()) {
+            if (closed) return;
+        }
+    }
+
+    /**
+     * 살아 있는 문서 조회 (없으면 null)
+     */
+    public SimpleVectorStore.Document getDocument(String id) {
+        writeLock.lock();
+        try {
+            Location location = locations.get(id);
+            return location == null ? null : location.segment.store.getDocument(location.ordinal);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public SimpleEmbedding getEmbedding() {
+        return embedding;
+    }
+
+    /**
+     * 살아 있는 문서 수
+     */
+    public int size() {
+        writeLock.lock();
+        try {
+            return locations.size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 봉인 세그먼트 수 (memtable 제외)
+     */
+    public int segmentCount() {
+        return snapshot.sealed.size();
+    }
+
+    /**
+     * 삭제 표시만 되어 아직 병합으로 제거되지 않은 벡터 수
+     */
+    public int deletedCount() {
+        Snapshot current = snapshot;
+        int deleted = current.memtable.deletedCount();
+        for (Segment segment : current.sealed) {
+            deleted += segment.deletedCount();
+        }
+        return deleted;
+    }
+
+    public long getMergeCount() {
+        return mergeCount;
+    }
+
+    /**
+     * 백그라운드 병합 중지 (진행 중인 병합은 끝까지 수행)
+     */
+    @Override
+    public void close() {
+        closed = true;
+        merger.shutdown();
+        try {
+            merger.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("닫힌 저장소입니다");
+        }
+    }
+
+    private Segment newSegment(int capacity) {
+        return new Segment(new SimpleVectorStore(embedding, SimpleVectorStore.StorageMode.FLAT), capacity);
+    }
+
+    /**
+     * 세그먼트: 벡터 저장소 + 삭제 표시 비트
+     *
+     * 봉인된 뒤에는 저장소가 바뀌지 않으므로 락 없이 읽고, 삭제 표시만 원자적으로 추가됩니다.
+     */
+    private static final class Segment {
+        final SimpleVectorStore store;
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();  // memtable일 때만 의미 있음
+        private final AtomicLongArray deleted;
+        private volatile int deletedCount;
+
+        Segment(SimpleVectorStore store, int capacity) {
+            this.store = store;
+            this.deleted = new AtomicLongArray((capacity + 63) >>> 6);
+        }
+
+        /**
+         * 삭제 표시 (writeLock 안에서만 호출)
+         */
+        void delete(int ordinal) {
+            long bit = 1L << ordinal;
+            long previous = deleted.getAndAccumulate(ordinal >>> 6, bit, (a, b) -> a | b);
+            if ((previous & bit) == 0) {
+                deletedCount++;
+            }
+        }
+
+        boolean isDeleted(int ordinal) {
+            return (deleted.get(ordinal >>> 6) & (1L << ordinal)) != 0;
+        }
+
+        int deletedCount() {
+            return deletedCount;
+        }
+    }
+
+    private static final class Location {
+        final Segment segment;
+        final int ordinal;
+
+        Location(Segment segment, int ordinal) {
+            this.segment = segment;
+            this.ordinal = ordinal;
+        }
+    }
+
+    /**
+     * 검색이 보는 불변 세그먼트 목록
+     */
+    private static final class Snapshot {
+        final List<Segment> sealed;
+        final Segment memtable;
+
+        Snapshot(List<Segment> sealed, Segment memtable) {
+            this.sealed = sealed;
+            this.memtable = memtable;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.aiprocess.step25;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 유사도 커널 인터페이스
+ *
+ * 벡터 b는 연속 행렬 안의 offset 위치부터 읽습니다 (FlatVectorMatrix 대응).
+ * 구현 선택은 SimilarityKernels.get() 참고
+ */
+public interface SimilarityKernel {
+
+    /**
+     * 커널 이름 (로그/벤치마크 표시용)
+     */
+    String name();
+
+    /**
+     * 내적
+     */
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * 내적 (b는 order(LITTLE_ENDIAN)으로 설정된 바이트 버퍼, bOffset은 바이트 단위)
+     *
+     * 메모리 매핑 파일이나 off-heap 버퍼의 벡터를 힙으로 복사하지 않고 바로 계산할 때 사용
+     */
+    float dot(float[] a, int aOffset, ByteBuffer b, int bOffset, int length);
+
+    /**
+     * 내적 (b는 16비트 성분, 읽으면서 float로 복원)
+     */
+    float dot(float[] a, int aOffset, short[] b, int bOffset, int length, HalfPrecision precision);
+
+    /**
+     * 내적 (b는 little-endian 16비트 성분 버퍼, bOffset은 바이트 단위)
+     */
+    float dot(float[] a, int aOffset, ByteBuffer b, int bOffset, int length, HalfPrecision precision);
+
+    /**
+     * 코사인 유사도
+     */
+    float cosine(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * 유클리드 거리의 제곱 (L2²)
+     */
+    float squaredL2(float[] a, int aOffset, float[] b, int bOffset, int length);
+}
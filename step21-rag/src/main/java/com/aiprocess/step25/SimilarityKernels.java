@@ -0,0 +1,66 @@
+package com.aiprocess.step25;
+
+/**
+ * 유사도 커널 선택
+ *
+ * 기본값은 실행 환경에 jdk.incubator.vector 모듈이 있으면 SIMD 커널, 없으면 스칼라 커널입니다.
+ * -Daiprocess.similarity.kernel=scalar|vector 로 강제할 수 있습니다.
+ */
+public final class SimilarityKernels {
+
+    public static final String KERNEL_PROPERTY = "aiprocess.similarity.kernel";
+
+    private static final SimilarityKernel SCALAR = new ScalarSimilarityKernel();
+
+    private SimilarityKernels() {
+    }
+
+    /**
+     * 현재 환경에서 선택된 커널
+     */
+    public static SimilarityKernel get() {
+        return Holder.SELECTED;
+    }
+
+    /**
+     * 스칼라 기준 커널
+     */
+    public static SimilarityKernel scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * SIMD 커널 (모듈이 없으면 null)
+     */
+    public static SimilarityKernel vectorApi() {
+        return Holder.VECTOR_API;
+    }
+
+    private static final class Holder {
+        static final SimilarityKernel VECTOR_API = loadVectorApi();
+        static final SimilarityKernel SELECTED = select();
+
+        private static SimilarityKernel select() {
+            String requested = System.getProperty(KERNEL_PROPERTY, "auto");
+            if ("scalar".equals(requested) || VECTOR_API == null) {
+                return SCALAR;
+            }
+            return VECTOR_API;
+        }
+
+        /**
+         * 모듈이 로드되지 않은 JVM에서는 클래스 자체를 건드리지 않음 (NoClassDefFoundError 방지)
+         */
+        private static SimilarityKernel loadVectorApi() {
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+                return null;
+            }
+            try {
+                return (SimilarityKernel) Class.forName("com.aiprocess.step25.VectorApiSimilarityKernel")
+                    .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return null;
+            }
+        }
+    }
+}
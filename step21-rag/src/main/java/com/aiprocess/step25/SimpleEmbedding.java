@@ -1,6 +1,7 @@
 package com.aiprocess.step25;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * 간단한 임베딩 구현 (교육용)
@@ -9,76 +10,224 @@ import java.util.*;
  */
 public class SimpleEmbedding {
 
+    private static final int DEFAULT_CACHE_ENTRIES = 10_000;
+    private static final int PARALLEL_BATCH_THRESHOLD = 64;  // 이보다 작은 배치는 스레드 전환 비용이 더 큼
+
     private final int dimension;
     private final Random random;
-    private final Map<String, float[]> cache = new HashMap<>();
+    private final EmbeddingCache cache;  // null이면 캐시하지 않음
+
+    // 피처 해싱 모드: 토큰 해시 버킷별 벡터를 미리 만들어 둔 표 (buckets × dimension)
+    private final int hashBuckets;       // 0이면 단어마다 Random으로 벡터 생성 (기본)
+    private final float[] tokenTable;
 
     public SimpleEmbedding(int dimension) {
+        this(dimension, EmbeddingCache.ofEntries(DEFAULT_CACHE_ENTRIES, EmbeddingCache.EvictionPolicy.LRU));
+    }
+
+    /**
+     * 캐시를 직접 지정 (여러 요청 스레드가 하나의 인스턴스를 공유해도 안전)
+     */
+    public SimpleEmbedding(int dimension, EmbeddingCache cache) {
+        this(dimension, 0, cache);
+    }
+
+    /**
+     * 피처 해싱 모드 (hashBuckets > 0)
+     *
+     * 토큰을 해시 버킷으로 보내 미리 계산된 표의 행을 그대로 더합니다.
+     * 토큰마다 Random/float[]를 만들지 않으므로 대량 인덱싱 시 할당이 거의 없습니다.
+     * 버킷 충돌이 있어 기본 모드와 결과 벡터는 다릅니다.
+     */
+    public SimpleEmbedding(int dimension, int hashBuckets, EmbeddingCache cache) {
+        if (hashBuckets < 0 || (long) hashBuckets * dimension > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("hashBuckets 범위 오류: " + hashBuckets);
+        }
         this.dimension = dimension;
         this.random = new Random(42); // 재현성을 위한 시드
+        this.cache = cache;
+        this.hashBuckets = hashBuckets;
+        this.tokenTable = hashBuckets > 0 ? buildTokenTable(hashBuckets, dimension) : null;
+    }
+
+    private static float[] buildTokenTable(int buckets, int dimension) {
+        float[] table = new float[buckets * dimension];
+        Random tableRandom = new Random(42);
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (tableRandom.nextFloat() - 0.5f) * 2;
+        }
+        return table;
     }
 
     /**
      * 텍스트를 벡터로 변환
      */
     public float[] embed(String text) {
-        if (cache.containsKey(text)) {
-            return cache.get(text);
+        if (cache != null) {
+            float[] cached = cache.get(text);
+            if (cached != null) {
+                return cached;
+            }
         }
 
-        // 단어들의 임베딩을 평균
-        String[] words = text.toLowerCase().split("\\s+");
         float[] result = new float[dimension];
+        compute(text, result, 0);
 
-        for (String word : words) {
-            float[] wordVec = getWordVector(word);
-            for (int i = 0; i < dimension; i++) {
-                result[i] += wordVec[i];
+        if (cache != null) {
+            cache.put(text, result);
+        }
+        return result;
+    }
+
+    /**
+     * 텍스트 벡터를 out[offset..offset+dimension)에 직접 기록
+     */
+    public void embedInto(String text, float[] out, int offset) {
+        if (cache != null) {
+            float[] cached = cache.get(text);
+            if (cached != null) {
+                System.arraycopy(cached, 0, out, offset, dimension);
+                return;
             }
         }
 
+        compute(text, out, offset);
+
+        if (cache != null) {
+            cache.put(text, Arrays.copyOfRange(out, offset, offset + dimension));
+        }
+    }
+
+    /**
+     * 배치 임베딩: texts[i]의 벡터를 out[i * dimension ..]에 기록 (row-major)
+     *
+     * 텍스트가 충분히 많으면 ForkJoinPool 공용 풀에서 병렬로 계산합니다.
+     */
+    public void embedBatch(List<String> texts, float[] out) {
+        if (out.length < (long) texts.size() * dimension) {
+            throw new IllegalArgumentException(
+                "출력 행렬이 작습니다: " + out.length + " < " + texts.size() + " × " + dimension);
+        }
+
+        IntStream indices = IntStream.range(0, texts.size());
+        if (texts.size() >= PARALLEL_BATCH_THRESHOLD) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> embedInto(texts.get(i), out, i * dimension));
+    }
+
+    /**
+     * 배치 임베딩 (새 행렬 할당)
+     */
+    public float[] embedBatch(List<String> texts) {
+        float[] out = new float[texts.size() * dimension];
+        embedBatch(texts, out);
+        return out;
+    }
+
+    private void compute(String text, float[] out, int offset) {
+        Arrays.fill(out, offset, offset + dimension, 0f);
+
+        // 단어들의 임베딩을 합산
+        int count = hashBuckets > 0
+            ? accumulateHashed(text, out, offset)
+            : accumulateWords(text, out, offset);
+
         // 평균 및 정규화
         float norm = 0;
-        for (int i = 0; i < dimension; i++) {
-            result[i] /= words.length;
-            norm += result[i] * result[i];
+        for (int i = offset; i < offset + dimension; i++) {
+            out[i] /= count;
+            norm += out[i] * out[i];
         }
         norm = (float) Math.sqrt(norm);
 
         if (norm > 0) {
-            for (int i = 0; i < dimension; i++) {
-                result[i] /= norm;
+            for (int i = offset; i < offset + dimension; i++) {
+                out[i] /= norm;
             }
         }
+    }
 
-        cache.put(text, result);
-        return result;
+    /**
+     * 기본 모드: 단어마다 해시 시드 Random으로 벡터를 생성해 더함 (단어 수 반환)
+     */
+    private int accumulateWords(String text, float[] out, int offset) {
+        String[] words = text.toLowerCase().split("\\s+");
+
+        for (String word : words) {
+            Random wordRandom = new Random(word.hashCode());
+            for (int i = offset; i < offset + dimension; i++) {
+                out[i] += (wordRandom.nextFloat() - 0.5f) * 2;
+            }
+        }
+
+        return words.length;
     }
 
     /**
-     * 단어의 벡터 (해시 기반 의사 랜덤)
+     * 피처 해싱 모드: 문자를 한 번 훑으며 토큰 해시를 계산하고 표의 행을 더함 (토큰 수 반환)
+     *
+     * 해시는 소문자 토큰의 String.hashCode()와 같은 다항식 (부분 문자열을 만들지 않음)
      */
-    private float[] getWordVector(String word) {
-        float[] vec = new float[dimension];
-        Random wordRandom = new Random(word.hashCode());
+    private int accumulateHashed(CharSequence text, float[] out, int offset) {
+        int count = 0;
+        int hash = 0;
+        boolean inToken = false;
+
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            if (Character.isWhitespace(c)) {
+                if (inToken) {
+                    addTokenRow(hash, out, offset);
+                    count++;
+                    inToken = false;
+                    hash = 0;
+                }
+            } else {
+                hash = 31 * hash + Character.toLowerCase(c);
+                inToken = true;
+            }
+        }
+
+        return Math.max(count, 1);
+    }
 
+    private void addTokenRow(int hash, float[] out, int offset) {
+        int h = hash ^ (hash >>> 16);
+        int row = Math.floorMod(h * 0x9e3779b9, hashBuckets) * dimension;
         for (int i = 0; i < dimension; i++) {
-            vec[i] = (wordRandom.nextFloat() - 0.5f) * 2;
+            out[offset + i] += tokenTable[row + i];
         }
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
 
-        return vec;
+    public EmbeddingCache getCache() {
+        return cache;
     }
 
     /**
      * 코사인 유사도 계산
      */
     public static float cosineSimilarity(float[] a, float[] b) {
+        return cosineSimilarity(a, b, 0);
+    }
+
+    /**
+     * 코사인 유사도 계산 (b는 연속 행렬 안의 offset 위치부터 a.length개)
+     *
+     * 스칼라 기준 구현. 대량 스코어링은 SimilarityKernels.get() 커널 사용
+     */
+    public static float cosineSimilarity(float[] a, float[] b, int bOffset) {
         float dot = 0, normA = 0, normB = 0;
 
         for (int i = 0; i < a.length; i++) {
-            dot += a[i] * b[i];
+            float bi = b[bOffset + i];
+            dot += a[i] * bi;
             normA += a[i] * a[i];
-            normB += b[i] * b[i];
+            normB += bi * bi;
         }
 
         return dot / (float) (Math.sqrt(normA) * Math.sqrt(normB));
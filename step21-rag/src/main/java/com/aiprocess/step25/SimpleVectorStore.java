@@ -1,55 +1,845 @@
 package com.aiprocess.step25;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.FloatBuffer;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * 간단한 벡터 저장소 (교육용)
  *
  * 실제로는 Pinecone, Weaviate, Chroma 등을 사용
  */
-public class SimpleVectorStore {
+public class SimpleVectorStore implements VectorRetriever, AutoCloseable {
+
+    /**
+     * 벡터 저장 방식
+     */
+    public enum StorageMode {
+        OBJECT,        // 문서마다 float[] 보관 (기본)
+        FLAT,          // 모든 벡터를 하나의 연속 행렬에 보관
+        OFF_HEAP,      // 힙 밖 direct 버퍼 아레나에 보관 (GC 대상에서 제외, close() 필요)
+        MAPPED,        // 세그먼트 파일을 메모리 매핑 (open()으로 생성, 새 문서는 힙 행렬에 추가)
+        FP16,          // FLAT과 같되 성분을 IEEE 반정밀도(short[])로 저장 (메모리 절반)
+        BF16,          // FLAT과 같되 성분을 bfloat16(short[])으로 저장 (메모리 절반)
+        OFF_HEAP_FP16, // OFF_HEAP + 반정밀도
+        OFF_HEAP_BF16  // OFF_HEAP + bfloat16
+    }
 
     private final SimpleEmbedding embedding;
-    private final List<Document> documents = new ArrayList<>();
+    private final StorageMode storageMode;
+    private final List<Document> documents;
+    private VectorStorage vectors;  // OBJECT 모드에서는 null (FLAT은 첫 문서에서 차원 결정)
+    private SimilarityKernel kernel = SimilarityKernels.get();
+
+    // 정규화 상태: 저장 시 노름을 한 번만 계산해 두고 검색은 내적만 수행
+    private static final float UNIT_NORM_TOLERANCE = 1e-4f;
+    private float[] inverseNorms = new float[16];  // 1 / ||v|| (단위 벡터는 정확히 1)
+    private FloatBuffer mappedNorms;               // MAPPED: 파일에 저장된 앞부분 문서의 노름 (inverseNorms는 그 뒤부터)
+    private int mappedNormCount;
+    private boolean allUnitNorm = true;
+    private boolean normalizeOnIngest = false;
+
+    // 선행 기록 로그 (null이면 기록하지 않음)
+    private VectorWriteAheadLog writeAheadLog;
+    private long lastLoggedSeq;
+
+    // 메타데이터 역색인 (첫 필터 검색 때 만들고 이후 추가분은 바로 반영)
+    private volatile MetadataIndex metadataIndex;
+
+    // 1단계 근사 인덱스 (null이면 전수 검색만)
+    private PrefilterIndex prefilter;
+    private int rescoreFactor = 4;
+
+    private static final int PQ_TRAINING_SAMPLES_PER_CENTROID = 64;
+    private static final int PQ_TRAINING_ITERATIONS = 20;
+
+    private static final int INGEST_BATCH_FLOATS = 1 << 20;  // 배치 임베딩 버퍼 (4MB)
+    private static final int SCAN_BLOCK_ROWS = 1024;          // 스캔 시 한 번에 점수 매기는 행 수
+
+    // 병렬 검색 설정 (executor가 null이면 호출 스레드에서 스캔)
+    private ExecutorService searchExecutor;
+    private int searchShards = 1;
+    private int minShardSize = 16_384;
 
     public SimpleVectorStore(SimpleEmbedding embedding) {
+        this(embedding, StorageMode.OBJECT);
+    }
+
+    public SimpleVectorStore(SimpleEmbedding embedding, StorageMode storageMode) {
+        if (storageMode == StorageMode.MAPPED) {
+            throw new IllegalArgumentException("MAPPED 저장소는 open()으로 생성합니다");
+        }
         this.embedding = embedding;
+        this.storageMode = storageMode;
+        this.documents = new ArrayList<>();
+    }
+
+    private SimpleVectorStore(SimpleEmbedding embedding, VectorSegmentFile segment) {
+        this.embedding = embedding;
+        this.storageMode = StorageMode.MAPPED;
+        this.documents = segment.documents();
+        this.vectors = new LayeredVectorStorage(
+            segment.vectors(), new FlatVectorMatrix(segment.dimension()));
+        this.mappedNorms = segment.inverseNorms();
+        this.mappedNormCount = segment.count();
+        this.allUnitNorm = segment.isAllUnitNorm();
+    }
+
+    /**
+     * save()로 기록한 세그먼트 파일을 매핑해서 열기
+     *
+     * 다시 청킹/임베딩하지 않고 파일 크기와 관계없이 바로 검색할 수 있습니다.
+     * 벡터는 페이지 캐시에서 직접 읽고, 문서는 검색 결과로 꺼낼 때 디코딩합니다.
+     * 이후 추가한 문서는 힙 행렬에 쌓이므로 다시 save()해야 파일에 반영됩니다.
+     */
+    public static SimpleVectorStore open(Path path, SimpleEmbedding embedding) throws IOException {
+        VectorSegmentFile segment = VectorSegmentFile.open(path);
+        if (segment.count() > 0 && segment.dimension() != embedding.getDimension()) {
+            throw new IllegalArgumentException(
+                "임베딩 차원 불일치: 파일 " + segment.dimension() + ", 임베딩 " + embedding.getDimension());
+        }
+        return new SimpleVectorStore(embedding, segment);
+    }
+
+    /**
+     * 모든 문서와 벡터를 세그먼트 파일로 저장 (open()으로 다시 열 수 있음)
+     */
+    public void save(Path path) throws IOException {
+        VectorSegmentFile.write(path, this);
+    }
+
+    /**
+     * WAL 연결: 로그에 남은 추가분을 재생해 복구한 뒤, 이후 추가하는 문서를 모두 로그에 기록
+     *
+     * 빈 로그는 현재 문서 수를 기준 순번으로 다시 잡습니다 (open()한 세그먼트에 새 로그를 붙이는 경우).
+     * 레코드가 있는 로그에서 이미 저장소에 있는 순번은 checkpoint() 도중 중단된 경우뿐이므로
+     * 같은 id인지 확인하고 건너뛰며, 다르면 다른 저장소의 로그로 보고 예외를 던집니다.
+     * 시작 시 open() 또는 새 저장소 생성 직후에 호출합니다.
+     *
+     * @return 재생으로 복구된 문서 수
+     */
+    public int attachWriteAheadLog(VectorWriteAheadLog log) throws IOException {
+        if (log.getRecordCount() == 0) {
+            log.truncate(documents.size());
+            this.writeAheadLog = log;
+            return 0;
+        }
+        if (log.getBaseOrdinal() > documents.size()) {
+            throw new IllegalStateException("WAL 체크포인트(" + log.getBaseOrdinal()
+                + ")가 저장소 문서 수(" + documents.size() + ")보다 큽니다");
+        }
+        int before = documents.size();
+        log.replay(entry -> {
+            if (entry.ordinal >= documents.size()) {
+                add(entry.id, entry.content, entry.vector, 0, entry.vector.length, entry.metadata);
+            } else if (!documents.get(entry.ordinal).id.equals(entry.id)) {
+                throw new IllegalStateException("WAL 레코드(순번 " + entry.ordinal + ", id " + entry.id
+                    + ")가 저장된 문서(" + documents.get(entry.ordinal).id + ")와 다릅니다");
+            }
+        });
+        this.writeAheadLog = log;
+        return documents.size() - before;
+    }
+
+    /**
+     * 체크포인트: 세그먼트 파일로 저장한 뒤 WAL을 비움 (추가 작업과 동시에 호출하면 안 됨)
+     */
+    public void checkpoint(Path path) throws IOException {
+        save(path);
+        if (writeAheadLog != null) {
+            writeAheadLog.truncate(documents.size());
+        }
+    }
+
+    public VectorWriteAheadLog getWriteAheadLog() {
+        return writeAheadLog;
+    }
+
+    private void commitLog() {
+        if (writeAheadLog == null) return;
+        try {
+            writeAheadLog.commit(lastLoggedSeq);
+        } catch (IOException e) {
+            throw new UncheckedIOException("WAL 커밋 실패", e);
+        }
     }
 
     /**
      * 문서 저장
      */
     public void addDocument(String id, String content, Map<String, String> metadata) {
-        float[] vector = embedding.embed(content);
-        documents.add(new Document(id, content, vector, metadata));
+        addDocument(id, content, embedding.embed(content), metadata);
+    }
+
+    /**
+     * 외부에서 계산한 벡터로 문서 저장
+     *
+     * normalizeOnIngest가 켜져 있으면 단위 벡터로 정규화한 복사본을 저장합니다.
+     */
+    public void addDocument(String id, String content, float[] vector, Map<String, String> metadata) {
+        add(id, content, vector, 0, vector.length, metadata);
+        commitLog();
+    }
+
+    /**
+     * 여러 문서를 배치 임베딩으로 저장 (임베딩은 여러 코어에서 병렬 수행)
+     */
+    public void addDocuments(List<String> ids, List<String> contents,
+                             List<Map<String, String>> metadata) {
+        if (ids.size() != contents.size() || metadata.size() != contents.size()) {
+            throw new IllegalArgumentException("ids, contents, metadata 크기가 다릅니다");
+        }
+
+        int dim = embedding.getDimension();
+        int batchSize = Math.max(1, Math.min(contents.size(), INGEST_BATCH_FLOATS / dim));
+        float[] batch = new float[batchSize * dim];
+
+        for (int start = 0; start < contents.size(); start += batchSize) {
+            int end = Math.min(start + batchSize, contents.size());
+            embedding.embedBatch(contents.subList(start, end), batch);
+
+            for (int i = start; i < end; i++) {
+                add(ids.get(i), contents.get(i), batch, (i - start) * dim, dim, metadata.get(i));
+            }
+            commitLog();  // 배치마다 한 번만 fsync
+        }
+    }
+
+    /**
+     * 외부에서 계산한 벡터 행렬로 여러 문서 저장 (vectors[i * dim ..]가 i번째 문서, 로그는 한 번 커밋)
+     */
+    public void addDocuments(List<String> ids, List<String> contents, float[] vectors,
+                             List<Map<String, String>> metadata) {
+        if (ids.size() != contents.size() || metadata.size() != contents.size()) {
+            throw new IllegalArgumentException("ids, contents, metadata 크기가 다릅니다");
+        }
+        int dim = embedding.getDimension();
+        if (vectors.length < (long) contents.size() * dim) {
+            throw new IllegalArgumentException(
+                "벡터 행렬이 작습니다: " + vectors.length + " < " + contents.size() + " × " + dim);
+        }
+
+        for (int i = 0; i < contents.size(); i++) {
+            add(ids.get(i), contents.get(i), vectors, i * dim, dim, metadata.get(i));
+        }
+        commitLog();
+    }
+
+    /**
+     * data[offset..offset+dim) 벡터로 문서 추가
+     */
+    private void add(String id, String content, float[] data, int offset, int dim,
+                     Map<String, String> metadata) {
+        checkVector(data, offset, dim);  // WAL에 기록한 뒤 실패하면 재생할 때마다 같은 예외가 남
+        float norm = (float) Math.sqrt(kernel.dot(data, offset, data, offset, dim));
+        boolean shared = offset == 0 && data.length == dim;  // 호출자 배열을 그대로 보관해도 되는가
+
+        if (normalizeOnIngest && norm > 0 && !isUnit(norm)) {
+            float[] normalized = new float[dim];
+            for (int i = 0; i < dim; i++) {
+                normalized[i] = data[offset + i] / norm;
+            }
+            data = normalized;
+            offset = 0;
+            shared = true;
+            norm = 1f;
+        }
+        if (writeAheadLog != null) {
+            int logged = writeAheadLog.getBaseOrdinal() + writeAheadLog.getRecordCount();
+            if (logged != documents.size()) {
+                throw new IllegalStateException("WAL 순번(" + logged + ")이 저장소 문서 수("
+                    + documents.size() + ")와 어긋났습니다");
+            }
+            lastLoggedSeq = writeAheadLog.append(id, content, data, offset, dim, metadata);
+        }
+        recordNorm(documents.size(), norm);
+
+        if (storageMode != StorageMode.OBJECT) {
+            if (vectors == null) {
+                vectors = createStorage(dim);
+            }
+            vectors.add(data, offset);
+            documents.add(new Document(id, content, null, metadata));
+        } else {
+            float[] vector = shared ? data : Arrays.copyOfRange(data, offset, offset + dim);
+            documents.add(new Document(id, content, vector, metadata));
+        }
+
+        if (prefilter != null) {
+            prefilter.add(data, offset);
+        }
+        if (metadataIndex != null) {
+            metadataIndex.add(documents.size() - 1, metadata);
+        }
+    }
+
+    /**
+     * 저장 전에 실패할 수 있는 조건 확인 (차원, 16비트 모드의 NaN)
+     */
+    private void checkVector(float[] data, int offset, int dim) {
+        int stored = vectors != null ? vectors.dimension()
+            : !documents.isEmpty() && documents.get(0).vector != null ? documents.get(0).vector.length
+            : dim;
+        if (dim != stored) {
+            throw new IllegalArgumentException("벡터 차원 불일치: " + dim + " != " + stored);
+        }
+        if (storageMode == StorageMode.FP16 || storageMode == StorageMode.BF16
+                || storageMode == StorageMode.OFF_HEAP_FP16 || storageMode == StorageMode.OFF_HEAP_BF16) {
+            for (int i = 0; i < dim; i++) {
+                if (Float.isNaN(data[offset + i])) {
+                    throw new IllegalArgumentException("NaN은 16비트로 저장할 수 없습니다 (성분 " + i + ")");
+                }
+            }
+        }
+    }
+
+    /**
+     * 저장 방식에 맞는 벡터 저장소 (16비트 모드는 커널이 내적하면서 float로 복원)
+     */
+    private VectorStorage createStorage(int dim) {
+        switch (storageMode) {
+            case OFF_HEAP:
+                return new OffHeapVectorArena(dim);
+            case FP16:
+                return new HalfFloatMatrix(dim, HalfPrecision.FP16);
+            case BF16:
+                return new HalfFloatMatrix(dim, HalfPrecision.BF16);
+            case OFF_HEAP_FP16:
+                return new OffHeapVectorArena(dim, HalfPrecision.FP16);
+            case OFF_HEAP_BF16:
+                return new OffHeapVectorArena(dim, HalfPrecision.BF16);
+            default:
+                return new FlatVectorMatrix(dim);
+        }
+    }
+
+    private static boolean isUnit(float norm) {
+        return Math.abs(norm - 1f) <= UNIT_NORM_TOLERANCE;
+    }
+
+    /**
+     * 저장된 1 / ||v|| (세그먼트 파일 기록용)
+     */
+    float inverseNorm(int ordinal) {
+        return ordinal < mappedNormCount
+            ? mappedNorms.get(ordinal)
+            : inverseNorms[ordinal - mappedNormCount];
+    }
+
+    int embeddingDimension() {
+        return embedding.getDimension();
+    }
+
+    private void recordNorm(int ordinal, float norm) {
+        int index = ordinal - mappedNormCount;
+        if (index == inverseNorms.length) {
+            inverseNorms = Arrays.copyOf(inverseNorms, index * 2);
+        }
+        if (isUnit(norm)) {
+            inverseNorms[index] = 1f;
+        } else {
+            inverseNorms[index] = norm > 0 ? 1f / norm : 0f;
+            allUnitNorm = false;
+        }
+    }
+
+    /**
+     * 외부 벡터를 저장 시 정규화할지 여부
+     */
+    public void setNormalizeOnIngest(boolean normalizeOnIngest) {
+        this.normalizeOnIngest = normalizeOnIngest;
+    }
+
+    /**
+     * 모든 저장 벡터가 단위 벡터인가 (그렇다면 코사인 = 내적)
+     */
+    public boolean isAllUnitNorm() {
+        return allUnitNorm;
     }
 
     /**
      * 여러 문서 저장
      */
     public void addDocuments(List<String> contents) {
+        List<String> ids = new ArrayList<>(contents.size());
+        List<Map<String, String>> metadata = new ArrayList<>(contents.size());
         for (int i = 0; i < contents.size(); i++) {
-            addDocument("doc_" + i, contents.get(i), new HashMap<>());
+            ids.add("doc_" + i);
+            metadata.add(new HashMap<>());
         }
+        addDocuments(ids, contents, metadata);
     }
 
     /**
      * 유사한 문서 검색
+     *
+     * 1단계 인덱스가 있으면 topK × rescoreFactor개 후보만 원본 벡터로 재점수
      */
+    @Override
     public List<SearchResult> search(String query, int topK) {
-        float[] queryVector = embedding.embed(query);
+        float[] queryVector = unitQuery(embedding.embed(query));
+
+        if (prefilter != null) {
+            return toResults(prefilterSearch(queryVector, topK));
+        }
+        return toResults(exactSearch(queryVector, topK));
+    }
+
+    /**
+     * 1단계 인덱스를 거치지 않는 전수 검색 (정확도 기준값)
+     */
+    public List<SearchResult> searchExact(String query, int topK) {
+        return toResults(exactSearch(unitQuery(embedding.embed(query)), topK));
+    }
+
+    /**
+     * 이미 임베딩한 쿼리 벡터로 검색 (여러 저장소에 같은 쿼리를 보낼 때 임베딩을 한 번만 계산)
+     */
+    public List<SearchResult> search(float[] queryVector, int topK) {
+        float[] unit = unitQuery(queryVector);
+        if (prefilter != null) {
+            return toResults(prefilterSearch(unit, topK));
+        }
+        return toResults(exactSearch(unit, topK));
+    }
+
+    /**
+     * 메타데이터 필터를 만족하는 문서 중에서 검색
+     *
+     * 필터를 먼저 비트맵으로 평가하고 해당 문서만 점수를 매기므로,
+     * 비용이 전체 문서 수가 아니라 조건에 맞는 문서 수에 비례합니다.
+     */
+    public List<SearchResult> search(String query, int topK, MetadataFilter filter) {
+        return search(embedding.embed(query), topK, filter);
+    }
+
+    public List<SearchResult> search(float[] queryVector, int topK, MetadataFilter filter) {
+        return searchWithin(queryVector, topK, filter(filter));
+    }
+
+    /**
+     * 주어진 순번 집합 안에서만 전수 검색 (외부 인덱스의 필터 검색 대체 경로)
+     */
+    public List<SearchResult> searchWithin(float[] queryVector, int topK, OrdinalBitmap ordinals) {
+        float[] unit = unitQuery(queryVector);
+        TopKSelector selector = new TopKSelector(Math.max(0, Math.min(topK, ordinals.cardinality())));
+        if (selector.capacity() > 0) {
+            ordinals.forEach(ordinal -> selector.offer(ordinal, similarity(unit, ordinal)));
+        }
+        return toResults(selector);
+    }
+
+    /**
+     * 필터를 만족하는 문서 순번 집합
+     */
+    public OrdinalBitmap filter(MetadataFilter filter) {
+        return filter.evaluate(metadataIndex());
+    }
+
+    /**
+     * 메타데이터 역색인 (없으면 저장된 문서로 한 번 만듦)
+     */
+    public synchronized MetadataIndex metadataIndex() {
+        MetadataIndex index = metadataIndex;
+        if (index == null) {
+            index = new MetadataIndex();
+            for (int i = 0; i < documents.size(); i++) {
+                index.add(i, documents.get(i).metadata);
+            }
+            metadataIndex = index;
+        }
+        return index;
+    }
+
+    private TopKSelector prefilterSearch(float[] queryVector, int topK) {
+        int k = Math.min(topK, documents.size());
+        TopKSelector candidates = new TopKSelector(
+            (int) Math.min(documents.size(), (long) k * rescoreFactor));
+        prefilter.search(queryVector, candidates);
+
+        // 후보만 float 벡터로 재점수
+        candidates.sortDescending();
+        TopKSelector selector = new TopKSelector(k);
+        for (int i = 0; i < candidates.size(); i++) {
+            int ordinal = candidates.ordinalAt(i);
+            selector.offer(ordinal, similarity(queryVector, ordinal));
+        }
+        return selector;
+    }
+
+    private TopKSelector exactSearch(float[] queryVector, int topK) {
+        // 상위 K개만 힙에 유지 (결과 객체는 K개만 생성)
+        int k = Math.min(topK, documents.size());
+        TopKSelector selector = new TopKSelector(k);
+
+        int shards = Math.min(searchShards, documents.size() / minShardSize);
+        if (searchExecutor != null && shards > 1) {
+            parallelScan(queryVector, shards, selector);
+        } else {
+            scan(queryVector, 0, documents.size(), selector);
+        }
+
+        return selector;
+    }
+
+    /**
+     * 1단계 근사 인덱스 지정 (이미 저장된 벡터는 인덱스에 채워 넣음, null이면 해제)
+     *
+     * @param rescoreFactor topK의 몇 배를 후보로 뽑아 재점수할지
+     */
+    public void setPrefilter(PrefilterIndex index, int rescoreFactor) {
+        if (rescoreFactor < 1) {
+            throw new IllegalArgumentException("rescoreFactor는 1 이상이어야 합니다: " + rescoreFactor);
+        }
+        if (index != null && index.size() != 0 && index.size() != documents.size()) {
+            throw new IllegalArgumentException("인덱스 크기가 저장소와 다릅니다: " + index.size());
+        }
+        if (index != null) {
+            for (int i = index.size(); i < documents.size(); i++) {
+                addToPrefilter(index, i);
+            }
+        }
+        this.prefilter = index;
+        this.rescoreFactor = rescoreFactor;
+    }
+
+    /**
+     * Int8 양자화 1단계 검색 사용 (벡터당 dimension 바이트 + 12바이트)
+     */
+    public Int8QuantizedIndex enableInt8Quantization(int rescoreFactor) {
+        Int8QuantizedIndex index = new Int8QuantizedIndex(dimension());
+        setPrefilter(index, rescoreFactor);
+        return index;
+    }
+
+    /**
+     * 이진 양자화(부호 비트) 1단계 검색 사용 (벡터당 dimension / 8 바이트)
+     *
+     * 거친 근사이므로 rescoreFactor를 크게(10 이상) 잡는 것이 좋음
+     */
+    public BinaryQuantizedIndex enableBinaryPrefilter(int rescoreFactor) {
+        BinaryQuantizedIndex index = new BinaryQuantizedIndex(dimension());
+        setPrefilter(index, rescoreFactor);
+        return index;
+    }
+
+    /**
+     * PQ 1단계 검색 사용 (저장된 벡터 일부로 코드북을 학습하므로 문서가 먼저 있어야 함)
+     *
+     * @param subspaces 부분 공간 수 m (벡터당 m 바이트)
+     * @param centroids 부분 공간별 중심점 수 (≤ 256)
+     */
+    public ProductQuantizationIndex enableProductQuantization(int subspaces, int centroids, int rescoreFactor) {
+        if (documents.isEmpty()) {
+            throw new IllegalStateException("PQ 코드북 학습에 사용할 문서가 없습니다");
+        }
+
+        int dim = dimension();
+        int sampleCount = Math.min(documents.size(), PQ_TRAINING_SAMPLES_PER_CENTROID * centroids);
+        float[] samples = new float[sampleCount * dim];
+        for (int i = 0; i < sampleCount; i++) {
+            int ordinal = (int) ((long) i * documents.size() / sampleCount);  // 고르게 표본 추출
+            System.arraycopy(getVector(ordinal), 0, samples, i * dim, dim);
+        }
+
+        ProductQuantizationIndex index = new ProductQuantizationIndex(dim, subspaces, centroids);
+        index.train(samples, sampleCount, PQ_TRAINING_ITERATIONS, 42);
+        setPrefilter(index, rescoreFactor);
+        return index;
+    }
+
+    /**
+     * 앞 prefixDimension차원 1단계 검색 사용 (벡터당 prefixDimension × 4 바이트 추가)
+     *
+     * search()는 앞 prefixDimension차원 전부로 후보를 고르고,
+     * 검색마다 차원을 바꾸려면 searchTwoStage()를 사용
+     */
+    public MatryoshkaPrefixIndex enableMatryoshkaPrefilter(int prefixDimension, int rescoreFactor) {
+        MatryoshkaPrefixIndex index = new MatryoshkaPrefixIndex(dimension(), prefixDimension, kernel);
+        setPrefilter(index, rescoreFactor);
+        return index;
+    }
+
+    /**
+     * 2단계 검색: 앞 prefixDims차원으로 전체를 훑어 shortlist개를 고르고, 앞 rerankDims차원으로 재점수
+     *
+     * rerankDims가 전체 차원이면 재점수는 search()와 같은 코사인 유사도입니다.
+     * 더 작으면 앞부분 내적 × (1 / 전체 노름)이라 점수 크기가 코사인보다 작습니다.
+     *
+     * @param prefixDims 1단계 차원 수 (≤ enableMatryoshkaPrefilter의 prefixDimension)
+     * @param shortlist 재점수할 후보 수 (topK 이상)
+     * @param rerankDims 2단계 차원 수 (prefixDims 이상, 전체 차원 이하)
+     */
+    public List<SearchResult> searchTwoStage(String query, int topK, int prefixDims, int shortlist, int rerankDims) {
+        return searchTwoStage(embedding.embed(query), topK, prefixDims, shortlist, rerankDims);
+    }
+
+    public List<SearchResult> searchTwoStage(float[] queryVector, int topK, int prefixDims, int shortlist, int rerankDims) {
+        if (!(prefilter instanceof MatryoshkaPrefixIndex)) {
+            throw new IllegalStateException("앞부분 차원 인덱스가 없습니다 (enableMatryoshkaPrefilter 필요)");
+        }
+        int dim = dimension();
+        if (rerankDims < prefixDims || rerankDims > dim) {
+            throw new IllegalArgumentException(
+                "rerankDims는 " + prefixDims + " 이상 " + dim + " 이하여야 합니다: " + rerankDims);
+        }
+        if (shortlist < topK) {
+            throw new IllegalArgumentException("shortlist는 topK 이상이어야 합니다: " + shortlist + " < " + topK);
+        }
+
+        float[] unit = unitQuery(queryVector);
+        TopKSelector candidates = new TopKSelector(Math.min(shortlist, documents.size()));
+        ((MatryoshkaPrefixIndex) prefilter).search(unit, prefixDims, candidates);
+
+        candidates.sortDescending();
+        TopKSelector selector = new TopKSelector(Math.min(topK, candidates.size()));
+        float[] row = rerankDims < dim && vectors != null ? new float[dim] : null;
+        for (int i = 0; i < candidates.size(); i++) {
+            int ordinal = candidates.ordinalAt(i);
+            float score = rerankDims == dim
+                ? similarity(unit, ordinal)
+                : prefixSimilarity(unit, ordinal, rerankDims, row);
+            selector.offer(ordinal, score);
+        }
+        return toResults(selector);
+    }
+
+    /**
+     * 앞 dims차원 내적 × (1 / 전체 노름) (row는 행 복사용 버퍼, OBJECT 모드에서는 null)
+     */
+    private float prefixSimilarity(float[] queryVector, int ordinal, int dims, float[] row) {
+        float score;
+        if (vectors != null) {
+            vectors.copyRow(ordinal, row, 0);
+            score = kernel.dot(queryVector, 0, row, 0, dims);
+        } else {
+            score = kernel.dot(queryVector, 0, documents.get(ordinal).vector, 0, dims);
+        }
+        return allUnitNorm ? score : score * inverseNorm(ordinal);
+    }
+
+    public PrefilterIndex getPrefilter() {
+        return prefilter;
+    }
+
+    /**
+     * 1단계 인덱스 검색과 전수 검색 결과 비교 (recall@K, 점수 손실)
+     */
+    public RecallReport evaluatePrefilter(List<String> queries, int topK) {
+        if (prefilter == null) {
+            throw new IllegalStateException("1단계 인덱스가 설정되지 않았습니다");
+        }
+        return RecallReport.compare(prefilter.name(), queries, topK, this::searchExact, this::search);
+    }
+
+    /**
+     * 다른 저장 방식으로 옮겼을 때의 검색 품질 (예: FP16/BF16 저장의 recall 손실)
+     *
+     * 이 저장소의 벡터를 mode 저장소에 복사한 뒤 두 저장소의 전수 검색 결과를 비교합니다.
+     * 기준은 이 저장소의 벡터이므로 float32(OBJECT/FLAT/OFF_HEAP) 저장소에서 호출해야 의미가 있습니다.
+     */
+    public RecallReport evaluateStorageMode(StorageMode mode, List<String> queries, int topK) {
+        if (mode == StorageMode.MAPPED) {
+            throw new IllegalArgumentException("MAPPED 저장소는 save()/open()으로 만듭니다");
+        }
+        try (SimpleVectorStore copy = new SimpleVectorStore(embedding, mode)) {
+            copy.setSimilarityKernel(kernel);
+            for (int i = 0; i < documents.size(); i++) {
+                Document document = documents.get(i);
+                copy.addDocument(document.id, document.content, getVector(i), document.metadata);
+            }
+            return RecallReport.compare(mode.name().toLowerCase(Locale.ROOT), queries, topK,
+                this::searchExact, copy::searchExact);
+        }
+    }
+
+    private void addToPrefilter(PrefilterIndex index, int ordinal) {
+        if (vectors != null) {
+            float[] row = new float[vectors.dimension()];
+            vectors.copyRow(ordinal, row, 0);
+            index.add(row, 0);
+        } else {
+            index.add(documents.get(ordinal).vector, 0);
+        }
+    }
+
+    private int dimension() {
+        if (vectors != null) return vectors.dimension();
+        if (!documents.isEmpty()) return documents.get(0).vector.length;
+        return embedding.getDimension();
+    }
+
+    /**
+     * 유사도 커널 교체 (기본값: SimilarityKernels.get())
+     */
+    public void setSimilarityKernel(SimilarityKernel kernel) {
+        this.kernel = Objects.requireNonNull(kernel);
+    }
+
+    public SimilarityKernel getSimilarityKernel() {
+        return kernel;
+    }
+
+    /**
+     * 병렬 검색 활성화 (ForkJoinPool 공용 풀, 코어 수만큼 샤드)
+     */
+    public void enableParallelSearch() {
+        setSearchExecutor(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * 병렬 검색 executor 지정 (null이면 단일 스레드 검색)
+     *
+     * 벡터 범위를 shards개로 나눠 각 샤드에서 로컬 Top-K를 구한 뒤 병합합니다.
+     */
+    public void setSearchExecutor(ExecutorService executor, int shards) {
+        if (executor != null && shards < 1) {
+            throw new IllegalArgumentException("shards는 1 이상이어야 합니다: " + shards);
+        }
+        this.searchExecutor = executor;
+        this.searchShards = executor == null ? 1 : shards;
+    }
+
+    /**
+     * 샤드 하나의 최소 문서 수 (작은 저장소는 스레드 전환 비용이 더 큼)
+     */
+    public void setMinShardSize(int minShardSize) {
+        if (minShardSize < 1) {
+            throw new IllegalArgumentException("minShardSize는 1 이상이어야 합니다: " + minShardSize);
+        }
+        this.minShardSize = minShardSize;
+    }
+
+    /**
+     * 샤드별 로컬 Top-K 스캔 후 병합 (마지막 샤드는 호출 스레드가 직접 처리)
+     */
+    private void parallelScan(float[] queryVector, int shards, TopKSelector out) {
+        int n = documents.size();
+        int k = out.capacity();
+        List<Future<TopKSelector>> futures = new ArrayList<>(shards - 1);
 
-        List<SearchResult> results = new ArrayList<>();
+        for (int shard = 0; shard < shards - 1; shard++) {
+            int from = (int) ((long) n * shard / shards);
+            int to = (int) ((long) n * (shard + 1) / shards);
+            futures.add(searchExecutor.submit(() -> {
+                TopKSelector local = new TopKSelector(k);
+                scan(queryVector, from, to, local);
+                return local;
+            }));
+        }
 
-        for (Document doc : documents) {
-            float similarity = SimpleEmbedding.cosineSimilarity(queryVector, doc.vector);
-            results.add(new SearchResult(doc, similarity));
+        scan(queryVector, (int) ((long) n * (shards - 1) / shards), n, out);
+
+        try {
+            for (Future<TopKSelector> future : futures) {
+                out.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("병렬 검색이 중단되었습니다", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("병렬 검색 실패", e.getCause());
         }
+    }
+
+    /**
+     * 쿼리 임베딩을 단위 벡터로 (similarity()에 넘길 값)
+     */
+    public float[] queryVector(String query) {
+        return unitQuery(embedding.embed(query));
+    }
 
-        // 유사도 순으로 정렬
-        results.sort((a, b) -> Float.compare(b.similarity, a.similarity));
+    /**
+     * 이미 임베딩한 벡터를 검색용 단위 벡터로 (단위 벡터면 그대로 반환)
+     */
+    public float[] queryVector(float[] vector) {
+        return unitQuery(vector);
+    }
 
-        return results.subList(0, Math.min(topK, results.size()));
+    /**
+     * 모든 문서의 유사도 (저장 순번 순서)
+     *
+     * 하이브리드 검색처럼 문서별 점수가 모두 필요할 때 사용
+     */
+    public float[] scoreAll(String query) {
+        float[] queryVector = unitQuery(embedding.embed(query));
+        float[] scores = new float[documents.size()];
+
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = similarity(queryVector, i);
+        }
+
+        return scores;
+    }
+
+    /**
+     * 쿼리를 단위 벡터로 (쿼리 노름은 검색당 한 번만 계산)
+     */
+    private float[] unitQuery(float[] queryVector) {
+        float norm = (float) Math.sqrt(kernel.dot(queryVector, 0, queryVector, 0, queryVector.length));
+        if (norm == 0 || isUnit(norm)) {
+            return queryVector;
+        }
+        float[] unit = new float[queryVector.length];
+        for (int i = 0; i < unit.length; i++) {
+            unit[i] = queryVector[i] / norm;
+        }
+        return unit;
+    }
+
+    /**
+     * [from, to) 범위의 문서를 점수 매겨 선택기에 넣기
+     *
+     * 쿼리는 단위 벡터. 코사인 = 내적 × (1 / 문서 노름), 모두 단위 벡터면 내적만 계산
+     */
+    private void scan(float[] queryVector, int from, int to, TopKSelector out) {
+        if (vectors != null) {
+            // 저장 순서대로 블록 단위 스캔 (문서 객체를 따라가지 않음)
+            float[] scores = new float[Math.min(SCAN_BLOCK_ROWS, Math.max(0, to - from))];
+            for (int start = from; start < to; start += scores.length) {
+                int end = Math.min(to, start + scores.length);
+                vectors.dotRange(kernel, queryVector, start, end, scores);
+                for (int ordinal = start; ordinal < end; ordinal++) {
+                    float score = scores[ordinal - start];
+                    out.offer(ordinal, allUnitNorm ? score : score * inverseNorm(ordinal));
+                }
+            }
+        } else {
+            int dim = queryVector.length;
+            for (int i = from; i < to; i++) {
+                float score = kernel.dot(queryVector, 0, documents.get(i).vector, 0, dim);
+                out.offer(i, allUnitNorm ? score : score * inverseNorm(i));
+            }
+        }
+    }
+
+    /**
+     * 단위 쿼리 벡터와 저장된 문서 하나의 코사인 유사도 (외부 인덱스의 재점수용)
+     */
+    public float similarity(float[] queryVector, int ordinal) {
+        float score;
+        if (vectors != null) {
+            score = vectors.dot(kernel, queryVector, ordinal);
+        } else {
+            score = kernel.dot(queryVector, 0, documents.get(ordinal).vector, 0, queryVector.length);
+        }
+        return allUnitNorm ? score : score * inverseNorm(ordinal);
+    }
+
+    private List<SearchResult> toResults(TopKSelector selector) {
+        selector.sortDescending();
+
+        List<SearchResult> results = new ArrayList<>(selector.size());
+        for (int i = 0; i < selector.size(); i++) {
+            int ordinal = selector.ordinalAt(i);
+            results.add(new SearchResult(documents.get(ordinal), selector.scoreAt(i), ordinal));
+        }
+        return results;
     }
 
     /**
@@ -76,13 +866,51 @@ public class SimpleVectorStore {
         return documents.size();
     }
 
+    /**
+     * WAL을 fsync 후 닫고 off-heap 벡터 메모리 반환 (이후 검색/추가 불가)
+     */
+    @Override
+    public void close() {
+        try {
+            if (writeAheadLog != null) {
+                writeAheadLog.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("WAL 닫기 실패", e);
+        } finally {
+            if (vectors instanceof OffHeapVectorArena) {
+                ((OffHeapVectorArena) vectors).close();
+            }
+        }
+    }
+
+    public StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    public Document getDocument(int ordinal) {
+        return documents.get(ordinal);
+    }
+
+    /**
+     * 저장 순번(ordinal)의 벡터 (OBJECT 외 모드에서는 복사본)
+     */
+    public float[] getVector(int ordinal) {
+        if (vectors == null) {
+            return documents.get(ordinal).vector;
+        }
+        float[] vector = new float[vectors.dimension()];
+        vectors.copyRow(ordinal, vector, 0);
+        return vector;
+    }
+
     /**
      * 문서 클래스
      */
     public static class Document {
         public final String id;
         public final String content;
-        public final float[] vector;
+        public final float[] vector;  // OBJECT 외 모드에서는 null (getVector 사용)
         public final Map<String, String> metadata;
 
         public Document(String id, String content, float[] vector, Map<String, String> metadata) {
@@ -99,10 +927,16 @@ public class SimpleVectorStore {
     public static class SearchResult {
         public final Document document;
         public final float similarity;
+        public final int ordinal;  // 저장 순번 (모르면 -1)
 
         public SearchResult(Document document, float similarity) {
+            this(document, similarity, -1);
+        }
+
+        public SearchResult(Document document, float similarity, int ordinal) {
             this.document = document;
             this.similarity = similarity;
+            this.ordinal = ordinal;
         }
     }
 }
@@ -0,0 +1,74 @@
+package com.aiprocess.step25;
+
+/**
+ * 원문 위의 구간 [start, end) (복사하지 않는 청크)
+ *
+ * 청킹 결과를 위치만으로 표현하고, 문자열은 toString()을 부를 때 한 번만 만듭니다.
+ * 원문이 바뀌면 구간도 바뀌므로 원문은 불변(String 등)이어야 합니다.
+ */
+public final class TextSpan implements CharSequence {
+
+    private final CharSequence source;
+    private final int start;
+    private final int end;
+
+    public TextSpan(CharSequence source, int start, int end) {
+        if (start < 0 || end < start || end > source.length()) {
+            throw new IndexOutOfBoundsException(
+                "구간 [" + start + ", " + end + "), 원문 길이 " + source.length());
+        }
+        this.source = source;
+        this.start = start;
+        this.end = end;
+    }
+
+    public CharSequence source() {
+        return source;
+    }
+
+    /**
+     * 원문에서의 시작 위치 (포함)
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * 원문에서의 끝 위치 (제외)
+     */
+    public int end() {
+        return end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + (end - start));
+        }
+        return source.charAt(start + index);
+    }
+
+    /**
+     * 부분 구간 (복사 없음)
+     */
+    @Override
+    public TextSpan subSequence(int from, int to) {
+        if (from < 0 || to < from || to > end - start) {
+            throw new IndexOutOfBoundsException("구간 [" + from + ", " + to + "), 길이 " + (end - start));
+        }
+        return new TextSpan(source, start + from, start + to);
+    }
+
+    /**
+     * 구간 문자열 생성 (호출할 때마다 새로 복사)
+     */
+    @Override
+    public String toString() {
+        return source.subSequence(start, end).toString();
+    }
+}
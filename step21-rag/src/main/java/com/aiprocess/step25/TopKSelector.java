@@ -0,0 +1,144 @@
+package com.aiprocess.step25;
+
+/**
+ * Top-K 선택기: 크기 K의 primitive 최소 힙
+ *
+ * 전체 정렬(O(N log N)) 대신 상위 K개만 유지합니다 (O(N log K)).
+ * 결과 객체는 만들지 않고 (ordinal, score) 쌍만 int[]/float[]에 보관합니다.
+ *
+ * 점수가 같으면 ordinal이 작은 쪽이 앞 (기존 안정 정렬과 같은 순서)
+ */
+public class TopKSelector {
+
+    private final int k;
+    private final int[] ordinals;
+    private final float[] scores;
+    private int size;
+    private boolean sorted;
+
+    public TopKSelector(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k는 0 이상이어야 합니다: " + k);
+        }
+        this.k = k;
+        this.ordinals = new int[k];
+        this.scores = new float[k];
+    }
+
+    /**
+     * 후보 추가 (힙에 들어가면 true)
+     */
+    public boolean offer(int ordinal, float score) {
+        if (sorted) {
+            throw new IllegalStateException("sortDescending() 이후에는 offer할 수 없습니다 (clear 필요)");
+        }
+        if (size < k) {
+            ordinals[size] = ordinal;
+            scores[size] = score;
+            siftUp(size++);
+            return true;
+        }
+        if (k == 0 || !better(ordinal, score, 0)) {
+            return false;
+        }
+        ordinals[0] = ordinal;
+        scores[0] = score;
+        siftDown(0, size);
+        return true;
+    }
+
+    /**
+     * 다른 선택기의 후보를 모두 합침 (병렬 샤드 병합용)
+     */
+    public void addAll(TopKSelector other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ordinals[i], other.scores[i]);
+        }
+    }
+
+    /**
+     * 현재 K번째 점수 (가득 차지 않았으면 -Infinity)
+     */
+    public float threshold() {
+        return size < k || k == 0 ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    /**
+     * 점수 내림차순으로 정렬 (힙 정렬, 추가 할당 없음)
+     */
+    public void sortDescending() {
+        if (sorted) return;
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        sorted = true;
+    }
+
+    public int ordinalAt(int index) {
+        checkSorted();
+        return ordinals[index];
+    }
+
+    public float scoreAt(int index) {
+        checkSorted();
+        return scores[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return k;
+    }
+
+    public void clear() {
+        size = 0;
+        sorted = false;
+    }
+
+    private void checkSorted() {
+        if (!sorted) {
+            throw new IllegalStateException("sortDescending()을 먼저 호출하세요");
+        }
+    }
+
+    /**
+     * 후보가 힙의 i번째보다 순위가 높은가
+     */
+    private boolean better(int ordinal, float score, int i) {
+        int cmp = Float.compare(score, scores[i]);
+        return cmp > 0 || (cmp == 0 && ordinal < ordinals[i]);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!better(ordinals[parent], scores[parent], i)) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int end) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= end) break;
+            int right = left + 1;
+            int worst = right < end && better(ordinals[left], scores[left], right) ? right : left;
+            if (!better(ordinals[i], scores[i], worst)) break;
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int o = ordinals[a];
+        ordinals[a] = ordinals[b];
+        ordinals[b] = o;
+        float s = scores[a];
+        scores[a] = scores[b];
+        scores[b] = s;
+    }
+}
@@ -0,0 +1,169 @@
+package com.aiprocess.step25;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import jdk.incubator.vector.*;
+
+/**
+ * SIMD 유사도 커널 (jdk.incubator.vector)
+ *
+ * CPU가 지원하는 가장 넓은 레인(AVX2: 8개, AVX-512: 16개)으로 한 번에 계산하고
+ * 남은 꼬리 원소만 스칼라로 처리합니다.
+ *
+ * 누적 순서가 스칼라 커널과 달라 결과는 float 반올림 오차(1e-5 수준)만큼 다를 수 있습니다.
+ * 실행 시 --add-modules jdk.incubator.vector 가 필요 (없으면 SimilarityKernels가 스칼라 커널 선택)
+ */
+class VectorApiSimilarityKernel implements SimilarityKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INT_SPECIES = SPECIES.withLanes(int.class);
+    // 16비트 성분은 절반 폭 벡터로 읽어 float와 레인 수를 맞춤
+    private static final VectorSpecies<Short> HALF_SPECIES = VectorSpecies.of(
+        short.class, VectorShape.forBitSize(SPECIES.vectorBitSize() / 2));
+
+    @Override
+    public String name() {
+        return "vector-api(" + SPECIES.length() + " lanes)";
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int upper = SPECIES.loopBound(length);
+        int i = 0;
+
+        for (; i < upper; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, aOffset + i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bOffset + i);
+            acc = va.fma(vb, acc);
+        }
+
+        float dot = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            dot += a[aOffset + i] * b[bOffset + i];
+        }
+        return dot;
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, ByteBuffer b, int bOffset, int length) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int upper = SPECIES.loopBound(length);
+        int i = 0;
+
+        for (; i < upper; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, aOffset + i);
+            FloatVector vb = FloatVector.fromByteBuffer(
+                SPECIES, b, bOffset + i * Float.BYTES, ByteOrder.LITTLE_ENDIAN);
+            acc = va.fma(vb, acc);
+        }
+
+        float dot = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            dot += a[aOffset + i] * b.getFloat(bOffset + i * Float.BYTES);
+        }
+        return dot;
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, short[] b, int bOffset, int length, HalfPrecision precision) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int upper = SPECIES.loopBound(length);
+        int i = 0;
+
+        for (; i < upper; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, aOffset + i);
+            FloatVector vb = widen(ShortVector.fromArray(HALF_SPECIES, b, bOffset + i), precision);
+            acc = va.fma(vb, acc);
+        }
+
+        float dot = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            dot += a[aOffset + i] * precision.decode(b[bOffset + i]);
+        }
+        return dot;
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, ByteBuffer b, int bOffset, int length, HalfPrecision precision) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int upper = SPECIES.loopBound(length);
+        int i = 0;
+
+        for (; i < upper; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, aOffset + i);
+            FloatVector vb = widen(ShortVector.fromByteBuffer(
+                HALF_SPECIES, b, bOffset + i * Short.BYTES, ByteOrder.LITTLE_ENDIAN), precision);
+            acc = va.fma(vb, acc);
+        }
+
+        float dot = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            dot += a[aOffset + i] * precision.decode(b.getShort(bOffset + i * Short.BYTES));
+        }
+        return dot;
+    }
+
+    /**
+     * 16비트 성분을 float 레인으로 복원 (HalfPrecision.decode와 같은 비트 연산)
+     */
+    private static FloatVector widen(ShortVector half, HalfPrecision precision) {
+        IntVector bits = (IntVector) half.convertShape(VectorOperators.S2I, INT_SPECIES, 0);
+        if (precision == HalfPrecision.BF16) {
+            return bits.lanewise(VectorOperators.LSHL, 16).reinterpretAsFloats();
+        }
+        IntVector sign = bits.and(0x8000).lanewise(VectorOperators.LSHL, 16);
+        IntVector magnitude = bits.and(0x7fff).lanewise(VectorOperators.LSHL, 13);
+        return sign.or(magnitude).reinterpretAsFloats().mul(HalfPrecision.FP16_SCALE);
+    }
+
+    @Override
+    public float cosine(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector dotAcc = FloatVector.zero(SPECIES);
+        FloatVector normAAcc = FloatVector.zero(SPECIES);
+        FloatVector normBAcc = FloatVector.zero(SPECIES);
+        int upper = SPECIES.loopBound(length);
+        int i = 0;
+
+        for (; i < upper; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, aOffset + i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bOffset + i);
+            dotAcc = va.fma(vb, dotAcc);
+            normAAcc = va.fma(va, normAAcc);
+            normBAcc = vb.fma(vb, normBAcc);
+        }
+
+        float dot = dotAcc.reduceLanes(VectorOperators.ADD);
+        float normA = normAAcc.reduceLanes(VectorOperators.ADD);
+        float normB = normBAcc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            float ai = a[aOffset + i];
+            float bi = b[bOffset + i];
+            dot += ai * bi;
+            normA += ai * ai;
+            normB += bi * bi;
+        }
+
+        return dot / (float) (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+
+    @Override
+    public float squaredL2(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int upper = SPECIES.loopBound(length);
+        int i = 0;
+
+        for (; i < upper; i += SPECIES.length()) {
+            FloatVector diff = FloatVector.fromArray(SPECIES, a, aOffset + i)
+                .sub(FloatVector.fromArray(SPECIES, b, bOffset + i));
+            acc = diff.fma(diff, acc);
+        }
+
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            float d = a[aOffset + i] - b[bOffset + i];
+            sum += d * d;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,16 @@
+package com.aiprocess.step25;
+
+import java.util.*;
+
+/**
+ * 쿼리 → 유사 문서 검색기
+ *
+ * SimpleVectorStore(전수 검색)와 근사 인덱스를 서로 바꿔 끼울 수 있게 하는 공통 인터페이스
+ */
+public interface VectorRetriever {
+
+    /**
+     * 유사한 문서 검색 (유사도 내림차순)
+     */
+    List<SimpleVectorStore.SearchResult> search(String query, int topK);
+}
@@ -0,0 +1,363 @@
+package com.aiprocess.step25;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * 디스크 벡터 세그먼트 파일 (한 번 쓰고 여러 번 매핑해서 읽음)
+ *
+ * 파일 구조 (모두 little-endian):
+ * <pre>
+ * [헤더 64B]  magic, version, dimension, count, flags, 구역 위치들
+ * [벡터]      count × dimension × float32 (row-major, 바로 매핑해서 스캔)
+ * [노름]      count × float32 (1 / ||v||)
+ * [문서]      문서별 레코드: id, content, metadata (UTF-8)
+ * [색인]      (count + 1) × int64 문서 레코드 시작 위치
+ * </pre>
+ *
+ * 열 때는 벡터/문서/색인 구역을 매핑만 하고, 문서는 실제로 조회할 때 디코딩합니다.
+ * 그래서 문서 수와 관계없이 여는 비용이 거의 일정합니다.
+ */
+public final class VectorSegmentFile {
+
+    private static final int MAGIC = 0x31535641;  // "AVS1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int FLAG_ALL_UNIT_NORM = 1;
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private final Path path;
+    private final int dimension;
+    private final int count;
+    private final boolean allUnitNorm;
+    private final MappedVectorSegment vectors;
+    private final FloatBuffer inverseNorms;
+    private final MappedByteBuffer recordIndex;
+    private final MappedByteBuffer[] recordChunks;
+
+    private VectorSegmentFile(Path path) throws IOException {
+        this.path = path;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) break;
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException("벡터 세그먼트 파일이 아닙니다: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("지원하지 않는 세그먼트 버전: " + version);
+            }
+            this.dimension = header.getInt();
+            this.count = header.getInt();
+            this.allUnitNorm = (header.getInt() & FLAG_ALL_UNIT_NORM) != 0;
+            header.getInt();  // 예약
+            long normsOffset = header.getLong();
+            long recordsOffset = header.getLong();
+            long indexOffset = header.getLong();
+            if (indexOffset + (count + 1L) * Long.BYTES > channel.size()) {
+                throw new IOException("세그먼트 파일이 잘렸습니다: " + path);
+            }
+
+            this.vectors = new MappedVectorSegment(channel, HEADER_BYTES, dimension, count);
+
+            // 노름도 매핑만 함 (모두 단위 벡터면 검색 중에 읽지도 않음)
+            this.inverseNorms = channel.map(FileChannel.MapMode.READ_ONLY, normsOffset, (long) count * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+
+            this.recordIndex = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, (count + 1L) * Long.BYTES);
+            recordIndex.order(ByteOrder.LITTLE_ENDIAN);
+
+            long recordsLength = indexOffset - recordsOffset;
+            this.recordChunks = new MappedByteBuffer[(int) ((recordsLength + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES)];
+            for (int c = 0; c < recordChunks.length; c++) {
+                long start = c * MAX_CHUNK_BYTES;
+                recordChunks[c] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    recordsOffset + start, Math.min(MAX_CHUNK_BYTES, recordsLength - start));
+            }
+        }
+        // 채널을 닫아도 매핑은 버퍼가 GC될 때까지 유효
+    }
+
+    /**
+     * 세그먼트 파일 열기 (벡터와 문서는 매핑만 하고 읽지 않음)
+     */
+    public static VectorSegmentFile open(Path path) throws IOException {
+        return new VectorSegmentFile(path);
+    }
+
+    /**
+     * 저장소 내용을 세그먼트 파일로 기록
+     *
+     * 임시 파일에 쓰고 fsync한 뒤 원자적으로 이름을 바꾸므로 중간에 실패해도 기존 파일은 그대로입니다.
+     * 이름을 바꾼 뒤 디렉터리도 fsync하므로, 반환 후 checkpoint()가 WAL을 비워도 안전합니다.
+     */
+    static void write(Path path, SimpleVectorStore store) throws IOException {
+        int count = store.size();
+        int dimension = count > 0 ? store.getVector(0).length : store.embeddingDimension();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Writer out = new Writer(channel, HEADER_BYTES);
+
+            for (int i = 0; i < count; i++) {
+                float[] vector = store.getVector(i);
+                if (vector.length != dimension) {
+                    throw new IllegalStateException("벡터 차원 불일치: " + vector.length + " != " + dimension);
+                }
+                for (float v : vector) out.putFloat(v);
+            }
+
+            long normsOffset = out.position();
+            for (int i = 0; i < count; i++) {
+                out.putFloat(store.inverseNorm(i));
+            }
+
+            long recordsOffset = out.position();
+            long[] recordStarts = new long[count + 1];
+            for (int i = 0; i < count; i++) {
+                recordStarts[i] = out.position() - recordsOffset;
+                writeDocument(out, store.getDocument(i));
+            }
+            recordStarts[count] = out.position() - recordsOffset;
+
+            long indexOffset = out.position();
+            for (long start : recordStarts) out.putLong(start);
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(count)
+                .putInt(store.isAllUnitNorm() ? FLAG_ALL_UNIT_NORM : 0).putInt(0)
+                .putLong(normsOffset).putLong(recordsOffset).putLong(indexOffset);
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(path.toAbsolutePath().getParent());
+    }
+
+    /**
+     * 디렉터리 fsync: 이름 바꾸기를 내구화 (이후 WAL을 비워도 새 파일이 남음을 보장)
+     *
+     * 디렉터리를 채널로 열 수 없는 플랫폼(Windows 등)에서는 건너뜁니다.
+     */
+    private static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    private static void writeDocument(Writer out, SimpleVectorStore.Document document) throws IOException {
+        out.putString(document.id);
+        out.putString(document.content);
+        if (document.metadata == null) {
+            out.putInt(-1);
+            return;
+        }
+        out.putInt(document.metadata.size());
+        for (Map.Entry<String, String> entry : document.metadata.entrySet()) {
+            out.putString(entry.getKey());
+            out.putString(entry.getValue());
+        }
+    }
+
+    /**
+     * 문서 하나 디코딩 (매핑된 레코드에서 그때그때 읽음, 스레드 안전)
+     */
+    public SimpleVectorStore.Document document(int ordinal) {
+        if (ordinal < 0 || ordinal >= count) {
+            throw new IndexOutOfBoundsException("ordinal " + ordinal + ", count " + count);
+        }
+        long start = recordIndex.getLong(ordinal * Long.BYTES);
+        long end = recordIndex.getLong((ordinal + 1) * Long.BYTES);
+        ByteBuffer record = ByteBuffer.wrap(readRecord(start, (int) (end - start)))
+            .order(ByteOrder.LITTLE_ENDIAN);
+
+        String id = getString(record);
+        String content = getString(record);
+        int entries = record.getInt();
+        Map<String, String> metadata = null;
+        if (entries >= 0) {
+            metadata = new HashMap<>();
+            for (int i = 0; i < entries; i++) {
+                metadata.put(getString(record), getString(record));
+            }
+        }
+        return new SimpleVectorStore.Document(id, content, null, metadata);
+    }
+
+    /**
+     * 레코드 바이트 복사 (1GB 청크 경계에 걸친 레코드도 처리)
+     */
+    private byte[] readRecord(long start, int length) {
+        byte[] bytes = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            long position = start + copied;
+            MappedByteBuffer chunk = recordChunks[(int) (position / MAX_CHUNK_BYTES)];
+            int offset = (int) (position % MAX_CHUNK_BYTES);
+            int n = Math.min(length - copied, chunk.capacity() - offset);
+            chunk.get(offset, bytes, copied, n);
+            copied += n;
+        }
+        return bytes;
+    }
+
+    private static String getString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) return null;
+        String value = new String(record.array(), record.position(), length, StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+
+    /**
+     * 매핑된 문서 목록 + 새로 추가된 문서 (추가만 지원)
+     */
+    List<SimpleVectorStore.Document> documents() {
+        return new SegmentDocumentList(this);
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public boolean isAllUnitNorm() {
+        return allUnitNorm;
+    }
+
+    public MappedVectorSegment vectors() {
+        return vectors;
+    }
+
+    /**
+     * 저장된 1 / ||v|| (매핑된 읽기 전용 뷰, 절대 위치 get(ordinal)로 읽음)
+     */
+    public FloatBuffer inverseNorms() {
+        return inverseNorms.asReadOnlyBuffer();
+    }
+
+    private static final class SegmentDocumentList extends AbstractList<SimpleVectorStore.Document>
+            implements RandomAccess {
+        private final VectorSegmentFile segment;
+        private final List<SimpleVectorStore.Document> tail = new ArrayList<>();
+
+        SegmentDocumentList(VectorSegmentFile segment) {
+            this.segment = segment;
+        }
+
+        @Override
+        public SimpleVectorStore.Document get(int index) {
+            return index < segment.count ? segment.document(index) : tail.get(index - segment.count);
+        }
+
+        @Override
+        public boolean add(SimpleVectorStore.Document document) {
+            modCount++;
+            return tail.add(document);
+        }
+
+        @Override
+        public int size() {
+            return segment.count + tail.size();
+        }
+    }
+
+    /**
+     * 채널 순차 쓰기 버퍼 (little-endian)
+     */
+    private static final class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        Writer(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        long position() {
+            return position + buffer.position();
+        }
+
+        void putFloat(float value) throws IOException {
+            ensure(Float.BYTES);
+            buffer.putFloat(value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putString(String value) throws IOException {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            if (bytes.length <= buffer.remaining()) {
+                buffer.put(bytes);
+                return;
+            }
+            flush();
+            if (bytes.length <= buffer.capacity()) {
+                buffer.put(bytes);
+            } else {
+                writeFully(ByteBuffer.wrap(bytes));
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer src) throws IOException {
+            while (src.hasRemaining()) {
+                position += channel.write(src, position);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.aiprocess.step25;
+
+/**
+ * 행 단위 벡터 저장소 인터페이스
+ *
+ * SimpleVectorStore는 벡터가 어디에 있는지(힙 행렬, 매핑 파일 등) 모르고 이 인터페이스로만 접근합니다.
+ * 행 번호 = 문서 저장 순번(ordinal)
+ */
+public interface VectorStorage {
+
+    int dimension();
+
+    int size();
+
+    /**
+     * src[offset..offset+dimension) 을 새 행으로 추가 (행 번호 반환)
+     *
+     * @throws UnsupportedOperationException 읽기 전용 저장소
+     */
+    int add(float[] src, int offset);
+
+    /**
+     * 행 벡터를 dst[dstOffset..]에 복사
+     */
+    void copyRow(int row, float[] dst, int dstOffset);
+
+    /**
+     * 쿼리와 행 하나의 내적
+     */
+    float dot(SimilarityKernel kernel, float[] query, int row);
+
+    /**
+     * [from, to) 행과 쿼리의 내적을 scores[0..to-from)에 기록 (저장 순서대로 훑음)
+     */
+    void dotRange(SimilarityKernel kernel, float[] query, int from, int to, float[] scores);
+}
@@ -0,0 +1,459 @@
+package com.aiprocess.step25;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * 문서 추가 선행 기록 로그 (WAL, append-only)
+ *
+ * 문서를 저장소에 넣기 전에 id, 내용, 메타데이터, 임베딩 벡터를 로그에 먼저 기록합니다.
+ * 프로세스가 죽어도 다시 시작할 때 로그를 재생하면 마지막 세그먼트 저장 이후 추가분이 복구됩니다.
+ * 벡터까지 기록하므로 재생할 때 다시 임베딩하지 않습니다.
+ *
+ * 파일 구조 (little-endian):
+ * <pre>
+ * [헤더 16B]  magic, version, baseOrdinal(첫 레코드의 저장 순번), 예약
+ * [레코드]    payload 길이(int), CRC32(int), payload
+ * </pre>
+ *
+ * 그룹 커밋: 여러 스레드가 동시에 커밋하면 먼저 도착한 스레드가 쌓인 레코드를 한 번에 쓰고 fsync하며,
+ * 기다리던 스레드는 자기 레코드가 이미 포함됐으면 fsync 없이 바로 반환합니다.
+ *
+ * - SYNC: commit()이 fsync 완료까지 대기 (커밋된 문서는 유실 없음)
+ * - BATCHED: batchRecords개가 쌓이거나 batchDelay가 지나면 fsync (그 사이 추가분은 유실 가능, 처리량↑)
+ *
+ * 재생 중 길이가 모자라거나 CRC가 맞지 않는 레코드를 만나면 그 뒤를 잘라 냅니다 (쓰다 만 꼬리).
+ */
+public class VectorWriteAheadLog implements AutoCloseable {
+
+    /**
+     * fsync 정책
+     */
+    public enum Durability {
+        SYNC,
+        BATCHED
+    }
+
+    private static final int MAGIC = 0x31575641;  // "AVW1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int DEFAULT_BATCH_RECORDS = 1024;
+    private static final long DEFAULT_BATCH_DELAY_MILLIS = 50;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final Durability durability;
+    private final int batchRecords;
+    private final ScheduledExecutorService flusher;  // BATCHED 모드에서만
+
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(64 * 1024);
+    private long appendedSeq;             // 지금까지 append된 레코드 수
+    private volatile long durableSeq;     // fsync까지 끝난 레코드 수
+    private long writePosition;           // 파일에 기록된 끝 위치
+    private int baseOrdinal;
+    private int recordCount;              // 파일 + 대기 중 레코드 수
+    private volatile IOException backgroundFailure;
+    private volatile boolean closed;
+
+    private VectorWriteAheadLog(Path path, Durability durability, int batchRecords, long batchDelayMillis)
+            throws IOException {
+        if (batchRecords < 1 || batchDelayMillis < 1) {
+            throw new IllegalArgumentException("batchRecords와 batchDelayMillis는 1 이상이어야 합니다");
+        }
+        this.path = path;
+        this.durability = Objects.requireNonNull(durability);
+        this.batchRecords = batchRecords;
+        this.channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            recover();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        if (durability == Durability.BATCHED) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::backgroundSync,
+                batchDelayMillis, batchDelayMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * 로그 열기 (없으면 생성, 쓰다 만 꼬리는 잘라 냄)
+     */
+    public static VectorWriteAheadLog open(Path path, Durability durability) throws IOException {
+        return new VectorWriteAheadLog(path, durability, DEFAULT_BATCH_RECORDS, DEFAULT_BATCH_DELAY_MILLIS);
+    }
+
+    /**
+     * fsync 묶음 크기를 지정해 열기 (BATCHED 모드에서 사용)
+     */
+    public static VectorWriteAheadLog open(Path path, Durability durability,
+                                           int batchRecords, long batchDelayMillis) throws IOException {
+        return new VectorWriteAheadLog(path, durability, batchRecords, batchDelayMillis);
+    }
+
+    /**
+     * 헤더 확인 후 유효한 레코드 끝까지 훑고, 그 뒤(쓰다 만 레코드)는 잘라 냄
+     */
+    private void recover() throws IOException {
+        if (channel.size() < HEADER_BYTES) {
+            writeHeader(0);
+            writePosition = HEADER_BYTES;
+            return;
+        }
+
+        ByteBuffer header = readAt(0, HEADER_BYTES);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("WAL 파일이 아닙니다: " + path);
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("지원하지 않는 WAL 버전: " + version);
+        }
+        baseOrdinal = header.getInt();
+
+        writePosition = scan(null);
+        if (writePosition < channel.size()) {
+            channel.truncate(writePosition);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * 레코드를 순서대로 읽어 handler에 전달 (유효한 마지막 레코드의 끝 위치 반환)
+     */
+    private long scan(Consumer<Entry> handler) throws IOException {
+        long position = HEADER_BYTES;
+        long end = channel.size();
+        int count = 0;
+        CRC32 crc = new CRC32();
+
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(position)), 1 << 16);
+        byte[] recordHeader = new byte[RECORD_HEADER_BYTES];
+        while (position + RECORD_HEADER_BYTES <= end) {
+            if (in.readNBytes(recordHeader, 0, RECORD_HEADER_BYTES) < RECORD_HEADER_BYTES) break;
+            ByteBuffer header = ByteBuffer.wrap(recordHeader).order(ByteOrder.LITTLE_ENDIAN);
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length < 0 || position + RECORD_HEADER_BYTES + length > end) break;
+
+            byte[] payload = in.readNBytes(length);
+            if (payload.length < length) break;
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) break;
+
+            if (handler != null) {
+                handler.accept(decode(baseOrdinal + count, payload));
+            }
+            count++;
+            position += RECORD_HEADER_BYTES + length;
+        }
+
+        recordCount = count;
+        return position;
+    }
+
+    /**
+     * 로그의 모든 레코드를 순서대로 재생
+     */
+    public void replay(Consumer<Entry> handler) throws IOException {
+        synchronized (syncLock) {
+            synchronized (appendLock) {
+                if (pending.size() > 0 || appendedSeq > 0) {
+                    throw new IllegalStateException("재생은 기록을 시작하기 전에만 할 수 있습니다");
+                }
+                scan(handler);
+                channel.position(writePosition);
+            }
+        }
+    }
+
+    /**
+     * 레코드 추가 (메모리 버퍼에만 쌓임, 내구성은 commit()에서 보장)
+     *
+     * @return 이 레코드의 순번 (commit()에 넘김)
+     */
+    public long append(String id, String content, float[] data, int offset, int dimension,
+                       Map<String, String> metadata) {
+        byte[] payload = encode(id, content, data, offset, dimension, metadata);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(payload.length).putInt((int) crc.getValue());
+
+        synchronized (appendLock) {
+            ensureOpen();
+            pending.write(header.array(), 0, RECORD_HEADER_BYTES);
+            pending.write(payload, 0, payload.length);
+            recordCount++;
+            return ++appendedSeq;
+        }
+    }
+
+    /**
+     * seq까지 append된 레코드를 정책에 따라 내구화
+     *
+     * SYNC면 fsync가 끝날 때까지 대기, BATCHED면 묶음이 찼을 때만 fsync
+     */
+    public void commit(long seq) throws IOException {
+        IOException failure = backgroundFailure;
+        if (failure != null) {
+            throw new IOException("WAL 백그라운드 fsync 실패", failure);
+        }
+        if (durability == Durability.SYNC) {
+            syncTo(seq);
+        } else if (seq - durableSeq >= batchRecords) {
+            syncTo(seq);
+        }
+    }
+
+    /**
+     * 지금까지 append된 모든 레코드를 fsync
+     */
+    public void sync() throws IOException {
+        long seq;
+        synchronized (appendLock) {
+            seq = appendedSeq;
+        }
+        syncTo(seq);
+    }
+
+    /**
+     * 그룹 커밋: 대기 중인 레코드를 한꺼번에 쓰고 fsync (이미 포함됐으면 바로 반환)
+     */
+    private void syncTo(long seq) throws IOException {
+        if (durableSeq >= seq) return;
+
+        synchronized (syncLock) {
+            if (durableSeq >= seq) return;
+
+            ByteArrayOutputStream batch;
+            long upTo;
+            synchronized (appendLock) {
+                batch = pending;
+                upTo = appendedSeq;
+                pending = new ByteArrayOutputStream(Math.max(64 * 1024, batch.size()));
+            }
+
+            ByteBuffer bytes = ByteBuffer.wrap(batch.toByteArray());
+            while (bytes.hasRemaining()) {
+                writePosition += channel.write(bytes, writePosition);
+            }
+            channel.force(false);
+            durableSeq = upTo;
+        }
+    }
+
+    private void backgroundSync() {
+        try {
+            if (!closed) sync();
+        } catch (IOException e) {
+            backgroundFailure = e;
+        }
+    }
+
+    /**
+     * 체크포인트: 저장소가 세그먼트 파일로 저장된 뒤 로그를 비움
+     *
+     * @param baseOrdinal 저장된 문서 수 (이후 기록될 첫 레코드의 저장 순번)
+     */
+    public void truncate(int baseOrdinal) throws IOException {
+        synchronized (syncLock) {
+            synchronized (appendLock) {
+                ensureOpen();
+                pending.reset();
+                durableSeq = appendedSeq;
+                recordCount = 0;
+                this.baseOrdinal = baseOrdinal;
+
+                channel.truncate(HEADER_BYTES);
+                writeHeader(baseOrdinal);
+                writePosition = HEADER_BYTES;
+            }
+        }
+    }
+
+    private void writeHeader(int baseOrdinal) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(baseOrdinal).putInt(0);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.force(true);
+    }
+
+    private ByteBuffer readAt(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("WAL 헤더가 잘렸습니다: " + path);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 남은 레코드를 fsync하고 닫음
+     *
+     * 백그라운드 flush는 인터럽트하지 않음 (FileChannel I/O 중 인터럽트되면 채널이 닫혀 남은 레코드를 잃음).
+     * syncLock을 잡아 진행 중인 flush가 끝나기를 기다린 뒤 마지막 sync를 수행합니다.
+     */
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        synchronized (syncLock) {
+            if (closed) return;
+            try {
+                sync();
+            } finally {
+                closed = true;
+                channel.close();
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("닫힌 WAL입니다: " + path);
+        }
+    }
+
+    /**
+     * 로그의 첫 레코드 저장 순번 (마지막 체크포인트 때의 문서 수)
+     */
+    public int getBaseOrdinal() {
+        synchronized (appendLock) {
+            return baseOrdinal;
+        }
+    }
+
+    /**
+     * 로그에 있는 레코드 수 (아직 fsync되지 않은 것 포함)
+     */
+    public int getRecordCount() {
+        synchronized (appendLock) {
+            return recordCount;
+        }
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    private static byte[] encode(String id, String content, float[] data, int offset, int dimension,
+                                 Map<String, String> metadata) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + dimension * Float.BYTES);
+        putString(bytes, id);
+        putString(bytes, content);
+        if (metadata == null) {
+            putInt(bytes, -1);
+        } else {
+            putInt(bytes, metadata.size());
+            for (Map.Entry<String, String> entry : metadata.entrySet()) {
+                putString(bytes, entry.getKey());
+                putString(bytes, entry.getValue());
+            }
+        }
+
+        ByteBuffer vector = ByteBuffer.allocate(Integer.BYTES + dimension * Float.BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        vector.putInt(dimension);
+        for (int i = 0; i < dimension; i++) {
+            vector.putFloat(data[offset + i]);
+        }
+        bytes.write(vector.array(), 0, vector.capacity());
+        return bytes.toByteArray();
+    }
+
+    private static Entry decode(int ordinal, byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN);
+        String id = getString(in);
+        String content = getString(in);
+        int entries = in.getInt();
+        Map<String, String> metadata = null;
+        if (entries >= 0) {
+            metadata = new HashMap<>();
+            for (int i = 0; i < entries; i++) {
+                metadata.put(getString(in), getString(in));
+            }
+        }
+        float[] vector = new float[in.getInt()];
+        in.asFloatBuffer().get(vector);
+        return new Entry(ordinal, id, content, vector, metadata);
+    }
+
+    private static void putInt(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    private static void putString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            putInt(out, -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * 재생되는 로그 레코드
+     */
+    public static class Entry {
+        public final int ordinal;       // 저장소에서의 저장 순번
+        public final String id;
+        public final String content;
+        public final float[] vector;
+        public final Map<String, String> metadata;
+
+        public Entry(int ordinal, String id, String content, float[] vector, Map<String, String> metadata) {
+            this.ordinal = ordinal;
+            this.id = id;
+            this.content = content;
+            this.vector = vector;
+            this.metadata = metadata;
+        }
+    }
+}
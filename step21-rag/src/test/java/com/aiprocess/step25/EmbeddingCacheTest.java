@@ -0,0 +1,63 @@
+package com.aiprocess.step25;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddingCacheTest {
+
+    /**
+     * 메인 영역이 가득 찼을 때 덜 쓰인 후보는 아무것도 내보내지 않고 버려짐
+     */
+    @Test
+    void unpopularCandidateIsRejectedWithoutEvictingMainEntries() {
+        EmbeddingCache cache = EmbeddingCache.ofEntries(100, EmbeddingCache.EvictionPolicy.W_TINY_LFU);
+        for (int i = 0; i < 99; i++) {
+            cache.put("key" + i, new float[] {i});
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 99; i++) {
+                assertNotNull(cache.get("key" + i));
+            }
+        }
+
+        cache.put("once", new float[] {-1});   // 마지막 key가 윈도우에서 메인의 빈자리로
+        cache.put("twice", new float[] {-2});  // "once"가 윈도우에서 밀려나 입장 경쟁
+
+        assertNull(cache.get("once"));
+        for (int i = 0; i < 99; i++) {
+            assertNotNull(cache.get("key" + i), "key" + i);
+        }
+        assertEquals(100, cache.size());
+    }
+
+    /**
+     * 후보는 희생자 하나(메인의 가장 오래된 항목)와만 비교되어, 이기면 희생자 대신 들어감
+     * (희생자를 여러 개 내보낸 뒤 더 인기 있는 희생자를 만나 후보까지 버리면 안 됨)
+     */
+    @Test
+    void candidateBeatingEldestIsAdmittedEvenIfNextVictimsArePopular() {
+        EmbeddingCache cache = EmbeddingCache.ofBytes(100_000, EmbeddingCache.EvictionPolicy.W_TINY_LFU);
+        // 조회는 없는 키도 빈도에 셈: key0 다음으로 오래될 항목들을 후보보다 인기 있게 만듦
+        for (int round = 0; round < 10; round++) {
+            for (int i = 1; i <= 10; i++) {
+                cache.get("key" + i);
+            }
+        }
+        int entries = 0;
+        while (cache.stats().evictions == 0) {
+            cache.put("key" + entries++, new float[48]);
+        }
+
+        float[] large = new float[200];  // 희생자 여러 개 크기의 후보
+        cache.put("candidate", large);
+        for (int i = 0; i < 5; i++) {
+            assertSame(large, cache.get("candidate"));
+        }
+        cache.put("next", new float[48]);  // 후보가 윈도우에서 밀려나 입장 경쟁
+
+        assertSame(large, cache.get("candidate"));
+        assertNull(cache.get("key0"));
+        assertTrue(cache.weight() <= 100_000);
+    }
+}
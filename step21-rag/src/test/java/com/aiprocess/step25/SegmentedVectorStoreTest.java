@@ -0,0 +1,39 @@
+package com.aiprocess.step25;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedVectorStoreTest {
+
+    private static final int SEAL_THRESHOLD = 4;
+
+    /**
+     * 봉인 세그먼트의 문서를 모두 삭제해도 병합은 한 번으로 끝남
+     * (빈 세그먼트가 다시 병합 대상이 되면 maybeMerge()가 끝없이 true를 반환)
+     */
+    @Test
+    void mergeStopsAfterEverySealedDocumentIsDeleted() {
+        try (SegmentedVectorStore store = new SegmentedVectorStore(new SimpleEmbedding(64), SEAL_THRESHOLD, 8, 4)) {
+            for (int i = 0; i < SEAL_THRESHOLD; i++) {
+                store.addDocument("chunk_" + i, "문서 내용 " + i, new HashMap<>());
+            }
+            assertEquals(1, store.segmentCount());
+
+            for (int i = 0; i < SEAL_THRESHOLD; i++) {
+                assertTrue(store.deleteDocument("chunk_" + i));
+            }
+            int merges = 0;
+            while (store.maybeMerge()) {
+                assertTrue(++merges <= 1, "빈 세그먼트를 계속 다시 병합합니다");
+            }
+
+            assertEquals(0, store.size());
+            assertEquals(0, store.segmentCount());
+            assertEquals(0, store.deletedCount());
+            assertTrue(store.search("문서", 3).isEmpty());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.aiprocess.step25;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorWriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * 저장된 세그먼트에 새 WAL을 붙인 뒤 추가한 문서가 재시작 후 복구됨
+     * (빈 로그의 기준 순번이 0으로 남으면 재생 때 이미 있는 순번으로 보고 건너뜀)
+     */
+    @Test
+    void recordsAppendedAfterAttachingToOpenedSegmentAreReplayed() throws IOException {
+        Path segment = dir.resolve("store.seg");
+        Path log = dir.resolve("store.wal");
+        SimpleVectorStore store = new SimpleVectorStore(new SimpleEmbedding(64));
+        for (int i = 0; i < 5; i++) {
+            store.addDocument("doc_" + i, "문서 " + i, Map.of());
+        }
+        store.save(segment);
+
+        try (SimpleVectorStore opened = SimpleVectorStore.open(segment, new SimpleEmbedding(64))) {
+            assertEquals(0, opened.attachWriteAheadLog(VectorWriteAheadLog.open(log, VectorWriteAheadLog.Durability.SYNC)));
+            opened.addDocument("new_0", "추가 문서 0", Map.of());
+            opened.addDocument("new_1", "추가 문서 1", Map.of());
+        }
+
+        try (SimpleVectorStore restarted = SimpleVectorStore.open(segment, new SimpleEmbedding(64))) {
+            assertEquals(2, restarted.attachWriteAheadLog(VectorWriteAheadLog.open(log, VectorWriteAheadLog.Durability.SYNC)));
+            assertEquals(7, restarted.size());
+            assertEquals("new_1", restarted.getDocument(6).id);
+        }
+    }
+
+    /**
+     * checkpoint()가 저장 후 로그를 비우기 전에 멈춘 경우: 세그먼트에 이미 있는 레코드는 건너뜀
+     */
+    @Test
+    void recordsAlreadyInSegmentAreSkipped() throws IOException {
+        Path segment = dir.resolve("store.seg");
+        Path log = dir.resolve("store.wal");
+        try (SimpleVectorStore store = new SimpleVectorStore(new SimpleEmbedding(64))) {
+            store.attachWriteAheadLog(VectorWriteAheadLog.open(log, VectorWriteAheadLog.Durability.SYNC));
+            store.addDocument("doc_0", "문서 0", Map.of());
+            store.addDocument("doc_1", "문서 1", Map.of());
+            store.save(segment);  // truncate 전에 중단
+            store.addDocument("doc_2", "문서 2", Map.of());
+        }
+
+        try (SimpleVectorStore restarted = SimpleVectorStore.open(segment, new SimpleEmbedding(64))) {
+            assertEquals(1, restarted.attachWriteAheadLog(VectorWriteAheadLog.open(log, VectorWriteAheadLog.Durability.SYNC)));
+            assertEquals(3, restarted.size());
+        }
+    }
+
+    /**
+     * 다른 저장소의 로그(같은 순번에 다른 문서)는 건너뛰지 않고 거부
+     */
+    @Test
+    void logFromAnotherStoreIsRejected() throws IOException {
+        Path segment = dir.resolve("store.seg");
+        Path log = dir.resolve("other.wal");
+        SimpleVectorStore store = new SimpleVectorStore(new SimpleEmbedding(64));
+        store.addDocument("doc_0", "문서 0", Map.of());
+        store.addDocument("doc_1", "문서 1", Map.of());
+        store.save(segment);
+
+        try (SimpleVectorStore other = new SimpleVectorStore(new SimpleEmbedding(64))) {
+            other.attachWriteAheadLog(VectorWriteAheadLog.open(log, VectorWriteAheadLog.Durability.SYNC));
+            other.addDocument("other_0", "다른 문서", Map.of());
+        }
+
+        try (SimpleVectorStore opened = SimpleVectorStore.open(segment, new SimpleEmbedding(64));
+             VectorWriteAheadLog wal = VectorWriteAheadLog.open(log, VectorWriteAheadLog.Durability.SYNC)) {
+            assertThrows(IllegalStateException.class, () -> opened.attachWriteAheadLog(wal));
+        }
+    }
+}
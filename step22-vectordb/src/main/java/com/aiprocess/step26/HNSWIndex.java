@@ -0,0 +1,505 @@
+package com.aiprocess.step26;
+
+import com.aiprocess.step25.*;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * HNSW (Hierarchical Navigable Small World) 근사 최근접 이웃 인덱스
+ *
+ * 문서를 여러 층의 이웃 그래프로 연결합니다. 위층은 듬성듬성(먼 거리 이동),
+ * 아래층은 촘촘(정밀 탐색)해서 검색 비용이 문서 수에 대해 로그 수준으로 늘어납니다.
+ *
+ * - M: 노드당 이웃 수 (0층은 2M)
+ * - efConstruction: 삽입 시 후보 탐색 폭 (클수록 그래프 품질↑, 인덱싱 속도↓)
+ * - efSearch: 검색 시 후보 탐색 폭 (클수록 recall↑, 검색 속도↓)
+ *
+ * 벡터는 SimpleVectorStore에 그대로 두고 저장 순번(ordinal)으로 참조합니다.
+ * 삽입은 쓰기 락, 검색은 읽기 락이라 여러 스레드가 동시에 검색할 수 있습니다.
+ */
+public class HNSWIndex implements VectorRetriever {
+
+    private static final int MAX_LEVEL = 16;
+    private static final int FILTER_BRUTE_FORCE_RATIO = 20;  // 조건에 맞는 문서가 1/20 이하면 직접 훑음
+
+    private final SimpleVectorStore store;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private volatile int efSearch;
+    private final double levelMultiplier;   // 1 / ln(M)
+    private final Random random = new Random(42);
+
+    // links.get(node)[level] = {이웃 수, 이웃1, 이웃2, ...}
+    private final List<int[][]> links = new ArrayList<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<VisitedSet> visitedSets = ThreadLocal.withInitial(VisitedSet::new);
+
+    public HNSWIndex(SimpleVectorStore store, int m, int efConstruction, int efSearch) {
+        if (m < 2 || efConstruction < 1 || efSearch < 1) {
+            throw new IllegalArgumentException("M은 2 이상, ef 값은 1 이상이어야 합니다");
+        }
+        this.store = store;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1 / Math.log(m);
+
+        update();
+    }
+
+    /**
+     * 저장소에 문서를 추가하고 바로 그래프에 연결
+     */
+    public void addDocument(String id, String content, Map<String, String> metadata) {
+        lock.writeLock().lock();
+        try {
+            store.addDocument(id, content, metadata);
+            insertPending();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 저장소에 여러 문서를 배치 임베딩으로 추가하고 그래프에 연결
+     *
+     * 저장소 추가도 쓰기 락 안에서 하므로 검색과 동시에 불러도 됩니다.
+     */
+    public void addDocuments(List<String> ids, List<String> contents, List<Map<String, String>> metadata) {
+        lock.writeLock().lock();
+        try {
+            store.addDocuments(ids, contents, metadata);
+            insertPending();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 저장소에 새로 들어온 문서들을 그래프에 연결 (추가된 개수 반환)
+     *
+     * 저장소에 직접 추가하는 동안에는 검색하지 않아야 합니다 (검색과 겹치면 addDocument(s) 사용).
+     */
+    public int update() {
+        lock.writeLock().lock();
+        try {
+            return insertPending();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int insertPending() {
+        int added = 0;
+        while (links.size() < store.size()) {
+            insert(links.size());
+            added++;
+        }
+        return added;
+    }
+
+    /**
+     * 유사한 문서 검색
+     */
+    @Override
+    public List<SimpleVectorStore.SearchResult> search(String query, int topK) {
+        return search(store.queryVector(query), topK);
+    }
+
+    /**
+     * 임베딩된 질의 벡터로 검색
+     */
+    public List<SimpleVectorStore.SearchResult> search(float[] queryVector, int topK) {
+        queryVector = store.queryVector(queryVector);
+        lock.readLock().lock();
+        try {
+            TopKSelector found = searchGraph(queryVector, topK);
+
+            List<SimpleVectorStore.SearchResult> results = new ArrayList<>(found.size());
+            for (int i = 0; i < found.size(); i++) {
+                int ordinal = found.ordinalAt(i);
+                results.add(new SimpleVectorStore.SearchResult(
+                    store.getDocument(ordinal), found.scoreAt(i), ordinal));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 메타데이터 필터를 만족하는 문서 중에서 검색
+     *
+     * 그래프는 모든 노드를 거쳐 이동하되 결과에는 조건에 맞는 노드만 넣습니다.
+     * 조건에 맞는 문서가 적거나, 탐색 중 방문 노드 수가 그 수를 넘으면
+     * 해당 문서만 직접 훑는 편이 빠르므로 저장소의 부분 전수 검색으로 바꿉니다.
+     */
+    public List<SimpleVectorStore.SearchResult> search(String query, int topK, MetadataFilter filter) {
+        float[] queryVector = store.queryVector(query);
+
+        lock.readLock().lock();
+        try {
+            OrdinalBitmap allowed = store.filter(filter);
+            int matches = allowed.cardinality();
+            int ef = Math.max(efSearch, topK);
+            if (entryPoint < 0 || matches <= Math.max(ef, links.size() / FILTER_BRUTE_FORCE_RATIO)) {
+                return store.searchWithin(queryVector, topK, allowed);
+            }
+
+            int current = greedyDescend(queryVector, entryPoint, maxLevel, 0);
+            TopKSelector layer = searchLayer(queryVector, current, ef, 0, allowed, matches);
+            if (layer == null) {
+                return store.searchWithin(queryVector, topK, allowed);
+            }
+
+            TopKSelector top = new TopKSelector(Math.min(topK, layer.size()));
+            top.addAll(layer);
+            top.sortDescending();
+
+            List<SimpleVectorStore.SearchResult> results = new ArrayList<>(top.size());
+            for (int i = 0; i < top.size(); i++) {
+                int ordinal = top.ordinalAt(i);
+                results.add(new SimpleVectorStore.SearchResult(
+                    store.getDocument(ordinal), top.scoreAt(i), ordinal));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 위층에서 탐욕 이동으로 시작점을 좁힌 뒤 0층을 ef 폭으로 탐색 (읽기 락 안에서 호출)
+     */
+    private TopKSelector searchGraph(float[] queryVector, int topK) {
+        TopKSelector top = new TopKSelector(Math.min(topK, links.size()));
+        if (entryPoint < 0 || topK <= 0) {
+            top.sortDescending();
+            return top;
+        }
+
+        int current = greedyDescend(queryVector, entryPoint, maxLevel, 0);
+        TopKSelector layer = searchLayer(queryVector, current, Math.max(efSearch, topK), 0);
+
+        top.addAll(layer);
+        top.sortDescending();
+        return top;
+    }
+
+    /**
+     * fromLevel부터 toLevel 바로 위층까지 가장 가까운 이웃으로만 이동
+     */
+    private int greedyDescend(float[] vector, int start, int fromLevel, int toLevel) {
+        int current = start;
+        float currentScore = store.similarity(vector, current);
+
+        for (int level = fromLevel; level > toLevel; level--) {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                int[] neighbors = links.get(current)[level];
+                for (int i = 1; i <= neighbors[0]; i++) {
+                    float score = store.similarity(vector, neighbors[i]);
+                    if (score > currentScore) {
+                        currentScore = score;
+                        current = neighbors[i];
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 한 층에서 ef개 최근접 후보 탐색 (결과는 정렬되지 않은 TopKSelector)
+     */
+    private TopKSelector searchLayer(float[] vector, int entry, int ef, int level) {
+        return searchLayer(vector, entry, ef, level, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 필터 탐색: allowed에 있는 노드만 결과에 넣고, 나머지는 이동 경로로만 사용
+     *
+     * @param allowed    결과 후보 (null이면 전체)
+     * @param visitLimit 방문 노드 수가 이를 넘으면 중단하고 null 반환
+     */
+    private TopKSelector searchLayer(float[] vector, int entry, int ef, int level,
+                                     OrdinalBitmap allowed, int visitLimit) {
+        VisitedSet visited = visitedSets.get();
+        visited.reset(links.size());
+
+        TopKSelector results = new TopKSelector(ef);
+        LongMaxHeap candidates = new LongMaxHeap();
+
+        float entryScore = store.similarity(vector, entry);
+        visited.add(entry);
+        int visitedCount = 1;
+        if (allowed == null || allowed.contains(entry)) {
+            results.offer(entry, entryScore);
+        }
+        candidates.push(encode(entryScore, entry));
+
+        while (!candidates.isEmpty()) {
+            long best = candidates.pop();
+            if (scoreOf(best) < results.threshold()) break;  // 더 가까운 후보가 없음
+
+            int[] neighbors = links.get((int) best)[level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int neighbor = neighbors[i];
+                if (!visited.add(neighbor)) continue;
+                if (++visitedCount > visitLimit) return null;
+
+                float score = store.similarity(vector, neighbor);
+                if (allowed == null) {
+                    if (results.offer(neighbor, score)) {
+                        candidates.push(encode(score, neighbor));
+                    }
+                } else if (score >= results.threshold()) {
+                    if (allowed.contains(neighbor)) {
+                        results.offer(neighbor, score);
+                    }
+                    candidates.push(encode(score, neighbor));
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 노드 삽입 (쓰기 락 안에서 호출, node == links.size())
+     */
+    private void insert(int node) {
+        float[] vector = unitVector(node);
+        int level = randomLevel();
+
+        int[][] nodeLinks = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            nodeLinks[l] = new int[1 + maxConnections(l)];
+        }
+        links.add(nodeLinks);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int current = greedyDescend(vector, entryPoint, maxLevel, level);
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            TopKSelector candidates = searchLayer(vector, current, efConstruction, l);
+            candidates.sortDescending();
+
+            int[] selected = selectNeighbors(candidates, m);
+            nodeLinks[l][0] = selected.length;
+            System.arraycopy(selected, 0, nodeLinks[l], 1, selected.length);
+
+            for (int neighbor : selected) {
+                connect(neighbor, node, l);
+            }
+            current = candidates.ordinalAt(0);
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * 이웃 선택 휴리스틱: 이미 고른 이웃보다 기준점에 더 가까운 후보만 채택
+     * (한쪽 방향으로 몰린 이웃을 피해 그래프가 멀리까지 이어지게 함)
+     * 자리가 남으면 탈락한 후보로 채움
+     *
+     * @param candidates 기준점과의 유사도 내림차순으로 정렬된 후보
+     */
+    private int[] selectNeighbors(TopKSelector candidates, int max) {
+        int[] selected = new int[Math.min(max, candidates.size())];
+        int count = 0;
+        int[] skipped = new int[candidates.size()];
+        int skippedCount = 0;
+
+        for (int i = 0; i < candidates.size() && count < selected.length; i++) {
+            int candidate = candidates.ordinalAt(i);
+            float toBase = candidates.scoreAt(i);
+            float[] candidateVector = unitVector(candidate);
+
+            boolean diverse = true;
+            for (int j = 0; j < count; j++) {
+                if (store.similarity(candidateVector, selected[j]) > toBase) {
+                    diverse = false;
+                    break;
+                }
+            }
+
+            if (diverse) {
+                selected[count++] = candidate;
+            } else {
+                skipped[skippedCount++] = candidate;
+            }
+        }
+
+        for (int i = 0; i < skippedCount && count < selected.length; i++) {
+            selected[count++] = skipped[i];
+        }
+        return count == selected.length ? selected : Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * 양방향 연결. 이웃 목록이 가득 차면 휴리스틱으로 다시 골라 줄임
+     */
+    private void connect(int from, int to, int level) {
+        int[] neighbors = links.get(from)[level];
+        int max = neighbors.length - 1;
+
+        if (neighbors[0] < max) {
+            neighbors[++neighbors[0]] = to;
+            return;
+        }
+
+        float[] base = unitVector(from);
+        TopKSelector candidates = new TopKSelector(max + 1);
+        for (int i = 1; i <= neighbors[0]; i++) {
+            candidates.offer(neighbors[i], store.similarity(base, neighbors[i]));
+        }
+        candidates.offer(to, store.similarity(base, to));
+        candidates.sortDescending();
+
+        int[] selected = selectNeighbors(candidates, max);
+        neighbors[0] = selected.length;
+        System.arraycopy(selected, 0, neighbors, 1, selected.length);
+    }
+
+    private float[] unitVector(int ordinal) {
+        float[] vector = store.getVector(ordinal);
+        float norm = 0;
+        for (float v : vector) norm += v * v;
+        norm = (float) Math.sqrt(norm);
+        if (norm == 0 || Math.abs(norm - 1f) < 1e-4f) return vector;
+
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < unit.length; i++) {
+            unit[i] = vector[i] / norm;
+        }
+        return unit;
+    }
+
+    private int randomLevel() {
+        double level = -Math.log(1 - random.nextDouble()) * levelMultiplier;
+        return (int) Math.min(MAX_LEVEL, level);
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? maxM0 : m;
+    }
+
+    public void setEfSearch(int efSearch) {
+        if (efSearch < 1) {
+            throw new IllegalArgumentException("efSearch는 1 이상이어야 합니다: " + efSearch);
+        }
+        this.efSearch = efSearch;
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return links.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public SimpleVectorStore getStore() {
+        return store;
+    }
+
+    /**
+     * (점수, ordinal) → 정렬 가능한 long (점수가 크면 값도 큼)
+     */
+    private static long encode(float score, int ordinal) {
+        int bits = Float.floatToIntBits(score);
+        bits ^= (bits >> 31) & 0x7fffffff;
+        return ((long) bits << 32) | (ordinal & 0xffffffffL);
+    }
+
+    private static float scoreOf(long key) {
+        int bits = (int) (key >>> 32);
+        bits ^= (bits >> 31) & 0x7fffffff;
+        return Float.intBitsToFloat(bits);
+    }
+
+    /**
+     * 방문 표시 (세대 번호로 초기화 비용 없이 재사용, 스레드마다 하나)
+     */
+    private static final class VisitedSet {
+        private int[] marks = new int[0];
+        private int generation;
+
+        void reset(int size) {
+            if (marks.length < size) {
+                marks = new int[Math.max(size, marks.length * 2)];
+                generation = 0;
+            }
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        boolean add(int node) {
+            if (marks[node] == generation) return false;
+            marks[node] = generation;
+            return true;
+        }
+    }
+
+    /**
+     * primitive long 최대 힙 (탐색 후보 큐)
+     */
+    private static final class LongMaxHeap {
+        private long[] heap = new long[64];
+        private int size;
+
+        void push(long value) {
+            if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] >= value) break;
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = value;
+        }
+
+        long pop() {
+            long top = heap[0];
+            long last = heap[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && heap[child + 1] > heap[child]) child++;
+                if (heap[child] <= last) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return top;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
@@ -8,13 +8,26 @@ import java.util.*;
  */
 public class HybridSearch {
 
+    private static final int CANDIDATE_FACTOR = 4;  // 근사 검색기에서 topK의 몇 배를 후보로 받을지
+
     private final SimpleVectorStore vectorStore;
+    private final VectorRetriever retriever;      // null이면 모든 문서 점수 계산
     private final List<String> documents = new ArrayList<>();
     private final float semanticWeight;
 
     public HybridSearch(SimpleVectorStore vectorStore, float semanticWeight) {
+        this(vectorStore, semanticWeight, null);
+    }
+
+    /**
+     * 근사 검색기(HNSW 등)로 시맨틱 후보를 뽑는 하이브리드 검색
+     *
+     * 시맨틱 점수는 검색기 후보와 키워드가 일치한 문서에 대해서만 계산합니다.
+     */
+    public HybridSearch(SimpleVectorStore vectorStore, float semanticWeight, VectorRetriever retriever) {
         this.vectorStore = vectorStore;
         this.semanticWeight = semanticWeight; // 0.0 ~ 1.0
+        this.retriever = retriever;
     }
 
     public void addDocument(String content) {
@@ -62,53 +75,77 @@ public class HybridSearch {
      * 하이브리드 검색
      */
     public List<HybridResult> search(String query, int topK) {
-        // 키워드 점수
-        Map<Integer, Float> keywordScores = keywordSearch(query);
-
-        // 시맨틱 점수
-        List<SimpleVectorStore.SearchResult> semanticResults =
-            vectorStore.search(query, documents.size());
+        int n = documents.size();
+
+        // 키워드 점수 (문서 순번별 배열로)
+        float[] keywordScores = new float[n];
+        float maxKeyword = 0;
+        for (Map.Entry<Integer, Float> entry : keywordSearch(query).entrySet()) {
+            keywordScores[entry.getKey()] = entry.getValue();
+            maxKeyword = Math.max(maxKeyword, entry.getValue());
+        }
+        if (maxKeyword == 0) maxKeyword = 1f;
+
+        // 시맨틱 점수 (벡터 저장소 순번 = 문서 순번)
+        float[] semanticScores = new float[n];
+        BitSet hasSemantic = new BitSet(n);
+        if (retriever == null) {
+            float[] all = vectorStore.scoreAll(query);
+            int count = Math.min(n, all.length);
+            System.arraycopy(all, 0, semanticScores, 0, count);
+            hasSemantic.set(0, count);
+        } else {
+            collectCandidateScores(query, topK, keywordScores, semanticScores, hasSemantic);
+        }
 
-        // 점수 정규화 및 결합
-        Map<Integer, Float> combinedScores = new HashMap<>();
+        // 점수 결합 + 상위 K개만 선택
+        TopKSelector selector = new TopKSelector(Math.min(topK, n));
+        for (int i = 0; i < n; i++) {
+            if (!hasSemantic.get(i) && keywordScores[i] == 0) continue;
 
-        // 키워드 점수 정규화
-        float maxKeyword = keywordScores.values().stream()
-            .max(Float::compare).orElse(1f);
+            float combined = keywordScores[i] / maxKeyword * (1 - semanticWeight);
+            combined += semanticScores[i] * semanticWeight;
+            selector.offer(i, combined);
+        }
 
-        for (Map.Entry<Integer, Float> entry : keywordScores.entrySet()) {
-            float normalized = entry.getValue() / maxKeyword;
-            combinedScores.put(entry.getKey(),
-                normalized * (1 - semanticWeight));
+        // 결과 객체는 K개만 생성
+        selector.sortDescending();
+        List<HybridResult> results = new ArrayList<>(selector.size());
+        for (int r = 0; r < selector.size(); r++) {
+            int idx = selector.ordinalAt(r);
+            results.add(new HybridResult(
+                documents.get(idx),
+                selector.scoreAt(r),
+                keywordScores[idx],
+                semanticScores[idx]
+            ));
         }
 
-        // 시맨틱 점수 추가
-        for (int i = 0; i < semanticResults.size(); i++) {
-            SimpleVectorStore.SearchResult r = semanticResults.get(i);
-            // 문서 인덱스 추출 (간단화)
-            int docIndex = i;
+        return results;
+    }
 
-            float semanticScore = r.similarity * semanticWeight;
-            combinedScores.merge(docIndex, semanticScore, Float::sum);
+    /**
+     * 근사 검색기 후보 + 키워드 일치 문서의 시맨틱 점수만 계산
+     */
+    private void collectCandidateScores(String query, int topK, float[] keywordScores,
+                                        float[] semanticScores, BitSet hasSemantic) {
+        int n = semanticScores.length;
+        for (SimpleVectorStore.SearchResult r : retriever.search(query, topK * CANDIDATE_FACTOR)) {
+            if (r.ordinal >= 0 && r.ordinal < n) {
+                semanticScores[r.ordinal] = r.similarity;
+                hasSemantic.set(r.ordinal);
+            }
         }
 
-        // 결과 정렬
-        List<HybridResult> results = new ArrayList<>();
-        for (Map.Entry<Integer, Float> entry : combinedScores.entrySet()) {
-            int idx = entry.getKey();
-            if (idx < documents.size()) {
-                results.add(new HybridResult(
-                    documents.get(idx),
-                    entry.getValue(),
-                    keywordScores.getOrDefault(idx, 0f),
-                    semanticResults.size() > idx ?
-                        semanticResults.get(idx).similarity : 0f
-                ));
+        float[] queryVector = null;
+        int stored = Math.min(n, vectorStore.size());
+        for (int i = 0; i < stored; i++) {
+            if (keywordScores[i] > 0 && !hasSemantic.get(i)) {
+                if (queryVector == null) queryVector = vectorStore.queryVector(query);
+                semanticScores[i] = vectorStore.similarity(queryVector, i);
+                hasSemantic.set(i);
             }
         }
-
-        results.sort((a, b) -> Float.compare(b.combinedScore, a.combinedScore));
-        return results.subList(0, Math.min(topK, results.size()));
     }
 
     /**
@@ -0,0 +1,349 @@
+package com.aiprocess.step26;
+
+import com.aiprocess.step25.*;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * IVF (Inverted File) 근사 최근접 이웃 인덱스
+ *
+ * K-Means로 공간을 nlist개 군집으로 나누고, 문서를 가장 가까운 군집의 목록(posting list)에 넣습니다.
+ * 검색은 쿼리와 가까운 nprobe개 군집의 목록만 훑습니다.
+ *
+ * - nlist: 군집 수 (보통 √N 정도)
+ * - nprobe: 검색할 군집 수 (클수록 recall↑, 검색 속도↓ / nprobe = nlist 이면 전수 검색)
+ *
+ * 검색 비용이 대략 N × nprobe / nlist 로 예측 가능해 속도/정확도 조절이 쉽습니다.
+ * 학습 이후 데이터 분포가 바뀌어 목록 크기가 한쪽으로 쏠리면 rebalance()로 다시 학습합니다.
+ */
+public class IVFIndex implements VectorRetriever {
+
+    private static final int TRAINING_SAMPLES_PER_LIST = 256;
+    private static final int TRAINING_ITERATIONS = 20;
+    private static final int ASSIGN_BATCH_ROWS = 4096;
+
+    private final SimpleVectorStore store;
+    private final int nlist;
+    private volatile int nprobe;
+    private final SimilarityKernel kernel = SimilarityKernels.get();
+
+    private KMeans kmeans;
+    private float[] centroids;        // nlist × dimension
+    private int[][] lists;            // 군집별 문서 순번
+    private int[] listSizes;
+    private int assigned;             // 목록에 들어간 문서 수 (= 다음에 할당할 순번)
+    private double maxImbalance;      // 0이면 자동 재학습 안 함
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 저장소에 있는 문서로 군집을 학습하고 모두 목록에 넣음 (문서가 먼저 있어야 함)
+     */
+    public IVFIndex(SimpleVectorStore store, int nlist, int nprobe) {
+        if (nlist < 1 || nprobe < 1) {
+            throw new IllegalArgumentException("nlist와 nprobe는 1 이상이어야 합니다");
+        }
+        if (store.size() == 0) {
+            throw new IllegalStateException("IVF 군집 학습에 사용할 문서가 없습니다");
+        }
+        this.store = store;
+        this.nlist = nlist;
+        this.nprobe = Math.min(nprobe, nlist);
+
+        lock.writeLock().lock();
+        try {
+            train(null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 저장소에 문서를 추가하고 바로 목록에 넣음
+     */
+    public void addDocument(String id, String content, Map<String, String> metadata) {
+        lock.writeLock().lock();
+        try {
+            store.addDocument(id, content, metadata);
+            assignPending();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 저장소에 여러 문서를 배치 임베딩으로 추가하고 목록에 넣음 (update()처럼 자동 재학습 포함)
+     *
+     * 저장소 추가도 쓰기 락 안에서 하므로 검색과 동시에 불러도 됩니다.
+     */
+    public void addDocuments(List<String> ids, List<String> contents, List<Map<String, String>> metadata) {
+        lock.writeLock().lock();
+        try {
+            store.addDocuments(ids, contents, metadata);
+            updateLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 저장소에 새로 들어온 문서들을 목록에 넣음 (추가된 개수 반환)
+     *
+     * 자동 재학습이 켜져 있고 목록 크기 쏠림이 기준을 넘으면 이어서 재학습합니다.
+     * 저장소에 직접 추가하는 동안에는 검색하지 않아야 합니다 (검색과 겹치면 addDocument(s) 사용).
+     */
+    public int update() {
+        lock.writeLock().lock();
+        try {
+            return updateLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int updateLocked() {
+        int added = assignPending();
+        if (maxImbalance > 0 && imbalanceLocked() > maxImbalance) {
+            train(centroids);
+        }
+        return added;
+    }
+
+    /**
+     * 현재 데이터로 군집을 다시 학습하고 모든 문서를 다시 배치
+     *
+     * 기존 중심점에서 이어서 학습하므로 처음부터 학습하는 것보다 빨리 수렴합니다.
+     */
+    public void rebalance() {
+        lock.writeLock().lock();
+        try {
+            train(centroids);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 목록 크기 쏠림 = 가장 큰 목록 / 평균 목록 크기 (1이면 완전히 균등)
+     */
+    public double imbalance() {
+        lock.readLock().lock();
+        try {
+            return imbalanceLocked();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * update() 후 쏠림이 maxImbalance를 넘으면 자동으로 재학습 (0 이하면 끔)
+     */
+    public void setAutoRebalance(double maxImbalance) {
+        lock.writeLock().lock();
+        try {
+            this.maxImbalance = Math.max(0, maxImbalance);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 유사한 문서 검색
+     */
+    @Override
+    public List<SimpleVectorStore.SearchResult> search(String query, int topK) {
+        return search(store.queryVector(query), topK);
+    }
+
+    /**
+     * 임베딩된 질의 벡터로 검색
+     */
+    public List<SimpleVectorStore.SearchResult> search(float[] queryVector, int topK) {
+        return search(store.queryVector(queryVector), topK, (OrdinalBitmap) null);
+    }
+
+    /**
+     * 메타데이터 필터를 만족하는 문서 중에서 검색
+     *
+     * 조건에 맞는 문서가 nprobe개 목록에 들어 있을 것으로 예상되는 수보다 적으면 직접 훑습니다.
+     */
+    public List<SimpleVectorStore.SearchResult> search(String query, int topK, MetadataFilter filter) {
+        float[] queryVector = store.queryVector(query);
+        lock.readLock().lock();
+        try {
+            OrdinalBitmap allowed = store.filter(filter);
+            if ((long) allowed.cardinality() * nlist <= (long) assigned * nprobe) {
+                return store.searchWithin(queryVector, topK, allowed);
+            }
+            return search(queryVector, topK, allowed);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<SimpleVectorStore.SearchResult> search(float[] queryVector, int topK, OrdinalBitmap allowed) {
+        lock.readLock().lock();
+        try {
+            TopKSelector top = new TopKSelector(Math.max(0, Math.min(topK, assigned)));
+            if (top.capacity() > 0) {
+                TopKSelector probes = nearestLists(queryVector, nprobe);
+                probes.sortDescending();
+                for (int p = 0; p < probes.size(); p++) {
+                    int list = probes.ordinalAt(p);
+                    int[] members = lists[list];
+                    for (int i = 0, n = listSizes[list]; i < n; i++) {
+                        if (allowed != null && !allowed.contains(members[i])) continue;
+                        top.offer(members[i], store.similarity(queryVector, members[i]));
+                    }
+                }
+            }
+            top.sortDescending();
+
+            List<SimpleVectorStore.SearchResult> results = new ArrayList<>(top.size());
+            for (int i = 0; i < top.size(); i++) {
+                int ordinal = top.ordinalAt(i);
+                results.add(new SimpleVectorStore.SearchResult(
+                    store.getDocument(ordinal), top.scoreAt(i), ordinal));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 쿼리와 가까운 군집 count개 (점수 = -L2 거리)
+     */
+    private TopKSelector nearestLists(float[] queryVector, int count) {
+        int dim = queryVector.length;
+        TopKSelector probes = new TopKSelector(Math.min(count, nlist));
+        for (int c = 0; c < nlist; c++) {
+            probes.offer(c, -kernel.squaredL2(queryVector, 0, centroids, c * dim, dim));
+        }
+        return probes;
+    }
+
+    /**
+     * 표본으로 중심점 학습 후 전체 문서 재배치 (쓰기 락 안에서 호출)
+     *
+     * @param initial 이어서 학습할 중심점 (null이면 무작위 시작)
+     */
+    private void train(float[] initial) {
+        int dim = store.getVector(0).length;
+        int total = store.size();
+        int sampleCount = (int) Math.min(total, (long) TRAINING_SAMPLES_PER_LIST * nlist);
+        float[] samples = new float[sampleCount * dim];
+        for (int i = 0; i < sampleCount; i++) {
+            int ordinal = (int) ((long) i * total / sampleCount);  // 고르게 표본 추출
+            copyUnitVector(ordinal, samples, i * dim);
+        }
+
+        kmeans = new KMeans(nlist, dim, TRAINING_ITERATIONS, 42);
+        centroids = initial == null
+            ? kmeans.fit(samples, sampleCount)
+            : kmeans.fit(samples, sampleCount, initial);
+
+        lists = new int[nlist][];
+        listSizes = new int[nlist];
+        for (int c = 0; c < nlist; c++) {
+            lists[c] = new int[Math.max(4, total / nlist)];
+        }
+        assigned = 0;
+        assignPending();
+    }
+
+    /**
+     * 아직 목록에 없는 문서를 배치 단위로 가장 가까운 군집에 할당 (쓰기 락 안에서 호출)
+     */
+    private int assignPending() {
+        int dim = kmeans.dimension();
+        int start = assigned;
+        int end = store.size();
+        float[] batch = new float[Math.min(ASSIGN_BATCH_ROWS, Math.max(0, end - start)) * dim];
+        int[] nearest = new int[batch.length / dim];
+
+        for (int from = start; from < end; from += nearest.length) {
+            int count = Math.min(nearest.length, end - from);
+            for (int i = 0; i < count; i++) {
+                copyUnitVector(from + i, batch, i * dim);
+            }
+            Arrays.fill(nearest, -1);
+            kmeans.assign(batch, count, centroids, nearest);
+
+            for (int i = 0; i < count; i++) {
+                append(nearest[i], from + i);
+            }
+        }
+
+        assigned = end;
+        return end - start;
+    }
+
+    private void append(int list, int ordinal) {
+        int[] members = lists[list];
+        if (listSizes[list] == members.length) {
+            lists[list] = members = Arrays.copyOf(members, members.length * 2);
+        }
+        members[listSizes[list]++] = ordinal;
+    }
+
+    /**
+     * 저장된 벡터를 단위 벡터로 dst에 복사 (코사인 기준 군집화)
+     */
+    private void copyUnitVector(int ordinal, float[] dst, int offset) {
+        float[] vector = store.getVector(ordinal);
+        float norm = 0;
+        for (float v : vector) norm += v * v;
+        float scale = norm > 0 ? (float) (1 / Math.sqrt(norm)) : 0f;
+        for (int i = 0; i < vector.length; i++) {
+            dst[offset + i] = vector[i] * scale;
+        }
+    }
+
+    private double imbalanceLocked() {
+        if (assigned == 0) return 1.0;
+        int largest = 0;
+        for (int size : listSizes) largest = Math.max(largest, size);
+        return largest / ((double) assigned / nlist);
+    }
+
+    public void setNprobe(int nprobe) {
+        if (nprobe < 1) {
+            throw new IllegalArgumentException("nprobe는 1 이상이어야 합니다: " + nprobe);
+        }
+        this.nprobe = Math.min(nprobe, nlist);
+    }
+
+    public int getNprobe() {
+        return nprobe;
+    }
+
+    public int getNlist() {
+        return nlist;
+    }
+
+    /**
+     * 군집별 목록 크기 (복사본)
+     */
+    public int[] listSizes() {
+        lock.readLock().lock();
+        try {
+            return listSizes.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return assigned;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public SimpleVectorStore getStore() {
+        return store;
+    }
+}
@@ -0,0 +1,214 @@
+package com.aiprocess.step26;
+
+import com.aiprocess.step25.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * source 단위 증분 인덱서
+ *
+ * 문서를 내용 기준 경계(DocumentChunker.spansByContent)로 자르고, 청크 id를 "source#내용해시#n"으로 정합니다.
+ * n은 문서 안에서 같은 내용이 몇 번째로 나왔는지이므로, 반복되는 문단도 나온 횟수만큼 저장됩니다.
+ * 문서가 바뀌면 이전 청크 목록과 비교해
+ * - 그대로인 청크: 아무것도 하지 않음 (재임베딩 없음)
+ * - 새 청크: 내용 해시 캐시에 벡터가 있으면 재사용, 없으면 배치 임베딩
+ * - 사라진 청크: 저장소에서 삭제 표시
+ *
+ * 새 청크를 먼저 넣고 옛 청크를 지우므로, 갱신 중에도 검색에서 source가 통째로 빠지지 않습니다.
+ * 청크 메타데이터는 source와 content_hash입니다 (위치는 편집마다 바뀌므로 넣지 않음).
+ */
+public class IncrementalIndexer {
+
+    private static final int HASH_BYTES = 16;  // SHA-256 앞 128비트
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final SegmentedVectorStore store;
+    private final SimpleEmbedding embedding;
+    private final DocumentChunker chunker;
+    private final EmbeddingCache vectorCache;                         // 내용 해시 → 벡터
+    private final Map<String, List<String>> manifests = new HashMap<>();  // source → 청크 id
+
+    private long embeddedChunks;
+    private long reusedChunks;
+
+    public IncrementalIndexer(SegmentedVectorStore store, DocumentChunker chunker, long cacheEntries) {
+        this.store = store;
+        this.embedding = store.getEmbedding();
+        this.chunker = chunker;
+        this.vectorCache = EmbeddingCache.ofEntries(cacheEntries, EmbeddingCache.EvictionPolicy.W_TINY_LFU);
+    }
+
+    /**
+     * 증분 갱신 결과
+     */
+    public static class Update {
+        public final String source;
+        public final int chunks;      // 새 문서의 청크 수
+        public final int unchanged;   // 그대로 남은 청크
+        public final int reused;      // 캐시(또는 같은 문서의 같은 내용) 벡터로 추가한 청크
+        public final int embedded;    // 새로 임베딩한 청크
+        public final int removed;     // 삭제한 옛 청크
+
+        Update(String source, int chunks, int unchanged, int reused, int embedded, int removed) {
+            this.source = source;
+            this.chunks = chunks;
+            this.unchanged = unchanged;
+            this.reused = reused;
+            this.embedded = embedded;
+            this.removed = removed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: 청크 %d (유지 %d, 재사용 %d, 임베딩 %d, 삭제 %d)",
+                source, chunks, unchanged, reused, embedded, removed);
+        }
+    }
+
+    /**
+     * source의 문서를 새 내용으로 맞춤 (처음 보는 source면 전체 추가)
+     */
+    public synchronized Update index(String source, String document) {
+        Map<String, String> contents = new LinkedHashMap<>();  // id → 내용
+        Map<String, String> hashes = new HashMap<>();
+        Map<String, Integer> occurrences = new HashMap<>();    // 내용 해시 → 나온 횟수
+        for (TextSpan span : chunker.spansByContent(document)) {
+            String content = span.toString();
+            String hash = contentHash(content);
+            String id = source + "#" + hash + "#" + occurrences.merge(hash, 1, Integer::sum);
+            contents.put(id, content);
+            hashes.put(id, hash);
+        }
+
+        Set<String> previous = new HashSet<>(manifests.getOrDefault(source, List.of()));
+
+        // 1. 바뀐 청크만 벡터 준비 (캐시 → 배치 임베딩, 같은 내용은 한 번만)
+        List<String> addIds = new ArrayList<>();
+        Map<String, float[]> vectors = new HashMap<>();  // 내용 해시 → 벡터 (임베딩 대기 중이면 null)
+        List<String> embedHashes = new ArrayList<>();
+        List<String> embedContents = new ArrayList<>();
+        int unchanged = 0;
+        for (Map.Entry<String, String> entry : contents.entrySet()) {
+            String id = entry.getKey();
+            if (previous.contains(id)) {
+                unchanged++;
+                continue;
+            }
+            addIds.add(id);
+            String hash = hashes.get(id);
+            if (vectors.containsKey(hash)) continue;
+
+            float[] cached = vectorCache.get(hash);
+            vectors.put(hash, cached);
+            if (cached == null) {
+                embedHashes.add(hash);
+                embedContents.add(entry.getValue());
+            }
+        }
+        int reused = addIds.size() - embedHashes.size();
+
+        if (!embedHashes.isEmpty()) {
+            int dim = embedding.getDimension();
+            float[] embedded = embedding.embedBatch(embedContents);
+            for (int i = 0; i < embedHashes.size(); i++) {
+                float[] vector = Arrays.copyOfRange(embedded, i * dim, (i + 1) * dim);
+                vectorCache.put(embedHashes.get(i), vector);
+                vectors.put(embedHashes.get(i), vector);
+            }
+        }
+
+        // 2. 새 청크 추가 후 사라진 청크 삭제 (저장소가 벡터 배열을 그대로 보관하므로 청크마다 복사)
+        for (String id : addIds) {
+            String hash = hashes.get(id);
+            Map<String, String> metadata = new HashMap<>();
+            metadata.put("source", source);
+            metadata.put("content_hash", hash);
+            store.addDocument(id, contents.get(id), vectors.get(hash).clone(), metadata);
+        }
+
+        int removed = 0;
+        for (String id : previous) {
+            if (!contents.containsKey(id) && store.deleteDocument(id)) {
+                removed++;
+            }
+        }
+
+        if (contents.isEmpty()) {
+            manifests.remove(source);
+        } else {
+            manifests.put(source, List.copyOf(contents.keySet()));
+        }
+        embeddedChunks += embedHashes.size();
+        reusedChunks += unchanged + reused;
+        return new Update(source, contents.size(), unchanged, reused, embedHashes.size(), removed);
+    }
+
+    /**
+     * source의 청크를 모두 삭제 (벡터는 캐시에 남아 문서가 되살아나면 재사용)
+     *
+     * @return 삭제한 청크 수
+     */
+    public synchronized int remove(String source) {
+        List<String> ids = manifests.remove(source);
+        if (ids == null) return 0;
+
+        int removed = 0;
+        for (String id : ids) {
+            if (store.deleteDocument(id)) removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * 청크 내용 해시 (SHA-256 앞 128비트, 16진수)
+     */
+    static String contentHash(String content) {
+        byte[] digest = sha256().digest(content.getBytes(StandardCharsets.UTF_8));
+        char[] hex = new char[HASH_BYTES * 2];
+        for (int i = 0; i < HASH_BYTES; i++) {
+            hex[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[digest[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256을 사용할 수 없습니다", e);
+        }
+    }
+
+    public synchronized Set<String> sources() {
+        return Set.copyOf(manifests.keySet());
+    }
+
+    public synchronized List<String> chunkIds(String source) {
+        return manifests.getOrDefault(source, List.of());
+    }
+
+    /**
+     * 지금까지 새로 임베딩한 청크 수
+     */
+    public synchronized long getEmbeddedChunks() {
+        return embeddedChunks;
+    }
+
+    /**
+     * 지금까지 임베딩 없이 유지/재사용한 청크 수
+     */
+    public synchronized long getReusedChunks() {
+        return reusedChunks;
+    }
+
+    public EmbeddingCache getVectorCache() {
+        return vectorCache;
+    }
+
+    public SegmentedVectorStore getStore() {
+        return store;
+    }
+}
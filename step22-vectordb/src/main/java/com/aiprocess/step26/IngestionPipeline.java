@@ -0,0 +1,513 @@
+package com.aiprocess.step26;
+
+import com.aiprocess.step25.*;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 단계별 대량 수집 파이프라인
+ *
+ * <pre>
+ * submit → [문서 큐] → 청킹 ×N → [청크 큐] → 임베딩 ×M → [배치 큐] → 저장 ×1
+ * </pre>
+ *
+ * 단계 사이 큐는 모두 크기가 제한되어, 느린 단계가 있으면 앞 단계가 기다립니다 (backpressure).
+ * submit도 문서 큐가 가득 차면 기다리므로, 입력이 아무리 커도 메모리에는 큐 용량만큼만 올라갑니다.
+ * 파일은 청킹 스레드가 스트리밍으로 읽습니다 (DocumentChunker.streamByParagraph).
+ *
+ * 저장은 스레드 하나가 배치 단위로 합니다 (SimpleVectorStore는 동시 쓰기를 지원하지 않음).
+ * 수집 중에는 같은 저장소를 검색하지 않아야 합니다.
+ * 어느 단계든 실패하면 모든 단계를 멈추고 finish()가 예외를 던집니다.
+ */
+public class IngestionPipeline implements AutoCloseable {
+
+    private static final int DEFAULT_BATCH_SIZE = 64;
+    private static final int DEFAULT_QUEUE_CAPACITY = 4096;
+    private static final long POLL_MILLIS = 100;  // 중단 여부를 확인하는 주기
+
+    private static final Object END = new Object();  // 단계 종료 표시
+
+    private final DocumentChunker chunker;
+    private final SimpleEmbedding embedding;
+    private final SimpleVectorStore store;
+    private final int chunkThreads;
+    private final int embedThreads;
+    private final int batchSize;
+
+    private final BlockingQueue<Object> documentQueue;
+    private final BlockingQueue<Object> chunkQueue;
+    private final BlockingQueue<Object> batchQueue;
+    private final List<Thread> threads = new ArrayList<>();
+    private final AtomicInteger chunkWorkers = new AtomicInteger();
+    private final AtomicInteger embedWorkers = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean aborted;
+    private volatile boolean started;
+    private boolean finished;
+    private long startNanos;
+    private volatile long endNanos;
+
+    // 진행 지표
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder characters = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder embedded = new LongAdder();
+    private final LongAdder indexed = new LongAdder();
+    private final Stage submitStage = new Stage("submit");
+    private final Stage chunkStage = new Stage("chunk");
+    private final Stage embedStage = new Stage("embed");
+    private final Stage indexStage = new Stage("index");
+
+    /**
+     * 코어 수에 맞춘 기본 설정 (청킹 1/4, 임베딩 나머지, 배치 64, 큐 4096)
+     */
+    public IngestionPipeline(DocumentChunker chunker, SimpleEmbedding embedding, SimpleVectorStore store) {
+        this(chunker, embedding, store,
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 4),
+            Math.max(1, Runtime.getRuntime().availableProcessors()
+                - Math.max(1, Runtime.getRuntime().availableProcessors() / 4) - 1),
+            DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param chunkThreads  청킹(읽기 포함) 스레드 수
+     * @param embedThreads  임베딩 스레드 수
+     * @param batchSize     임베딩/저장 배치 크기 (청크 수)
+     * @param queueCapacity 청크 큐 용량 (문서 큐와 배치 큐는 이에 비례)
+     */
+    public IngestionPipeline(DocumentChunker chunker, SimpleEmbedding embedding, SimpleVectorStore store,
+                             int chunkThreads, int embedThreads, int batchSize, int queueCapacity) {
+        if (chunkThreads <= 0 || embedThreads <= 0 || batchSize <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("스레드 수, 배치 크기, 큐 용량은 양수여야 합니다");
+        }
+        this.chunker = chunker;
+        this.embedding = embedding;
+        this.store = store;
+        this.chunkThreads = chunkThreads;
+        this.embedThreads = embedThreads;
+        this.batchSize = batchSize;
+        this.documentQueue = new ArrayBlockingQueue<>(Math.max(chunkThreads * 2, queueCapacity / 64));
+        this.chunkQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchQueue = new ArrayBlockingQueue<>(Math.max(2, queueCapacity / batchSize));
+    }
+
+    private static final class SourceDocument {
+        final String source;
+        final String text;   // 둘 중 하나
+        final Path file;
+
+        SourceDocument(String source, String text, Path file) {
+            this.source = source;
+            this.text = text;
+            this.file = file;
+        }
+    }
+
+    private static final class Chunk {
+        final String id;
+        final String content;
+        final Map<String, String> metadata;
+
+        Chunk(String id, String content, Map<String, String> metadata) {
+            this.id = id;
+            this.content = content;
+            this.metadata = metadata;
+        }
+    }
+
+    private static final class Batch {
+        final List<String> ids;
+        final List<String> contents;
+        final List<Map<String, String>> metadata;
+        final float[] vectors;
+
+        Batch(List<String> ids, List<String> contents, List<Map<String, String>> metadata, float[] vectors) {
+            this.ids = ids;
+            this.contents = contents;
+            this.metadata = metadata;
+            this.vectors = vectors;
+        }
+    }
+
+    /**
+     * 단계 스레드 시작
+     */
+    public synchronized void start() {
+        if (started) {
+            throw new IllegalStateException("이미 시작한 파이프라인입니다");
+        }
+        started = true;
+        startNanos = System.nanoTime();
+        chunkWorkers.set(chunkThreads);
+        embedWorkers.set(embedThreads);
+
+        for (int i = 0; i < chunkThreads; i++) {
+            threads.add(newThread("ingest-chunk-" + i, this::runChunker));
+        }
+        for (int i = 0; i < embedThreads; i++) {
+            threads.add(newThread("ingest-embed-" + i, this::runEmbedder));
+        }
+        threads.add(newThread("ingest-index", this::runIndexer));
+        for (Thread thread : threads) {
+            thread.start();
+        }
+    }
+
+    @FunctionalInterface
+    private interface StageBody {
+        void run() throws InterruptedException;
+    }
+
+    private Thread newThread(String name, StageBody body) {
+        Thread thread = new Thread(() -> {
+            try {
+                body.run();
+            } catch (InterruptedException | RuntimeException | Error e) {
+                fail(e);
+            }
+        }, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * 문서 추가 (문서 큐가 가득 차면 기다림)
+     */
+    public void submit(String source, String text) throws InterruptedException {
+        enqueue(new SourceDocument(source, text, null));
+    }
+
+    /**
+     * 파일 추가 (청킹 스레드가 UTF-8로 스트리밍해 읽음, source는 파일 경로)
+     */
+    public void submit(Path file) throws InterruptedException {
+        enqueue(new SourceDocument(file.toString(), null, file));
+    }
+
+    private void enqueue(SourceDocument document) throws InterruptedException {
+        synchronized (this) {
+            if (!started || finished) {
+                throw new IllegalStateException("시작 전이거나 이미 끝난 파이프라인입니다");
+            }
+        }
+        if (!put(documentQueue, document, submitStage)) {
+            throw failed();
+        }
+    }
+
+    /**
+     * 입력 종료 후 모든 단계가 끝날 때까지 대기
+     *
+     * @return 최종 지표
+     * @throws IllegalStateException 어느 단계든 실패한 경우
+     */
+    public Metrics finish() throws InterruptedException {
+        synchronized (this) {
+            if (!started) {
+                throw new IllegalStateException("시작하지 않은 파이프라인입니다");
+            }
+            if (!finished) {
+                finished = true;
+                for (int i = 0; i < chunkThreads; i++) {
+                    put(documentQueue, END, submitStage);
+                }
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw failed();
+        }
+        return metrics();
+    }
+
+    /**
+     * 문서 목록을 한 번에 수집 (start → submit → finish)
+     */
+    public Metrics ingest(Map<String, String> documents) throws InterruptedException {
+        start();
+        for (Map.Entry<String, String> entry : documents.entrySet()) {
+            submit(entry.getKey(), entry.getValue());
+        }
+        return finish();
+    }
+
+    /**
+     * 파일 목록을 한 번에 수집
+     */
+    public Metrics ingestFiles(Collection<Path> files) throws InterruptedException {
+        start();
+        for (Path file : files) {
+            submit(file);
+        }
+        return finish();
+    }
+
+    /**
+     * 중단 (진행 중인 배치는 버리고 스레드 종료를 기다림)
+     *
+     * 기다리는 중 인터럽트되면 더 기다리지 않고 인터럽트 상태를 복원한 채 반환합니다.
+     */
+    @Override
+    public void close() {
+        aborted = true;
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ----- 단계 -----
+
+    private void runChunker() throws InterruptedException {
+        try {
+            Object item;
+            while ((item = take(documentQueue)) != null && item != END) {
+                SourceDocument document = (SourceDocument) item;
+                long begin = System.nanoTime();
+                try (Reader reader = open(document)) {
+                    int index = 0;
+                    Iterator<String> it = chunker.streamByParagraph(reader).iterator();
+                    while (it.hasNext()) {
+                        String content = it.next();
+                        characters.add(content.length());
+
+                        Map<String, String> metadata = new HashMap<>();
+                        metadata.put("source", document.source);
+                        metadata.put("chunk_index", String.valueOf(index));
+                        Chunk chunk = new Chunk(document.source + "_" + index++, content, metadata);
+
+                        chunkStage.busy(System.nanoTime() - begin);
+                        if (!put(chunkQueue, chunk, chunkStage)) return;
+                        chunks.increment();
+                        begin = System.nanoTime();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("문서를 읽을 수 없습니다: " + document.source, e);
+                }
+                chunkStage.busy(System.nanoTime() - begin);
+                documents.increment();
+            }
+        } finally {
+            if (chunkWorkers.decrementAndGet() == 0) {
+                for (int i = 0; i < embedThreads; i++) {
+                    put(chunkQueue, END, chunkStage);
+                }
+            }
+        }
+    }
+
+    private static Reader open(SourceDocument document) throws IOException {
+        return document.file != null
+            ? Files.newBufferedReader(document.file, StandardCharsets.UTF_8)
+            : new StringReader(document.text);
+    }
+
+    /**
+     * 큐에서 한 개는 기다려 받고, 나머지는 이미 쌓인 만큼만 모아 배치 구성
+     * (부하가 높으면 배치가 가득 차고, 낮으면 지연 없이 작은 배치로 보냄)
+     */
+    private void runEmbedder() throws InterruptedException {
+        int dim = embedding.getDimension();
+        try {
+            boolean end = false;
+            while (!end) {
+                Object item = take(chunkQueue);
+                if (item == null || item == END) break;
+
+                List<Chunk> batch = new ArrayList<>(batchSize);
+                batch.add((Chunk) item);
+                while (batch.size() < batchSize) {
+                    Object next = chunkQueue.poll();
+                    if (next == null) break;
+                    if (next == END) {
+                        end = true;
+                        break;
+                    }
+                    batch.add((Chunk) next);
+                }
+
+                long begin = System.nanoTime();
+                List<String> ids = new ArrayList<>(batch.size());
+                List<String> contents = new ArrayList<>(batch.size());
+                List<Map<String, String>> metadata = new ArrayList<>(batch.size());
+                float[] vectors = new float[batch.size() * dim];
+                for (int i = 0; i < batch.size(); i++) {
+                    Chunk chunk = batch.get(i);
+                    // 배치 병렬화 대신 단계 스레드에서 직접 계산 (공용 풀과 코어를 다투지 않음)
+                    embedding.embedInto(chunk.content, vectors, i * dim);
+                    ids.add(chunk.id);
+                    contents.add(chunk.content);
+                    metadata.add(chunk.metadata);
+                }
+                embedStage.busy(System.nanoTime() - begin);
+
+                if (!put(batchQueue, new Batch(ids, contents, metadata, vectors), embedStage)) return;
+                embedded.add(batch.size());
+            }
+        } finally {
+            if (embedWorkers.decrementAndGet() == 0) {
+                put(batchQueue, END, embedStage);
+            }
+        }
+    }
+
+    private void runIndexer() throws InterruptedException {
+        Object item;
+        while ((item = take(batchQueue)) != null && item != END) {
+            Batch batch = (Batch) item;
+            long begin = System.nanoTime();
+            store.addDocuments(batch.ids, batch.contents, batch.vectors, batch.metadata);
+            indexStage.busy(System.nanoTime() - begin);
+            indexed.add(batch.ids.size());
+        }
+        endNanos = System.nanoTime();
+    }
+
+    // ----- 큐 도우미 (중단되면 기다리지 않고 빠져나옴) -----
+
+    /**
+     * @return 넣었으면 true, 파이프라인이 중단되었으면 false
+     */
+    private boolean put(BlockingQueue<Object> queue, Object item, Stage stage) throws InterruptedException {
+        if (queue.offer(item)) return true;
+
+        long begin = System.nanoTime();
+        try {
+            while (!aborted) {
+                if (queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) return true;
+            }
+            return false;
+        } finally {
+            stage.blocked(System.nanoTime() - begin);
+        }
+    }
+
+    /**
+     * @return 꺼낸 항목, 파이프라인이 중단되었으면 null
+     */
+    private Object take(BlockingQueue<Object> queue) throws InterruptedException {
+        while (!aborted) {
+            Object item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (item != null) return item;
+        }
+        return null;
+    }
+
+    private void fail(Throwable e) {
+        failure.compareAndSet(null, e);
+        aborted = true;
+    }
+
+    private IllegalStateException failed() {
+        Throwable cause = failure.get();
+        return new IllegalStateException("수집 파이프라인이 중단되었습니다"
+            + (cause != null ? ": " + cause : ""), cause);
+    }
+
+    // ----- 지표 -----
+
+    /**
+     * 단계별 처리/대기 시간 (여러 스레드 합계)
+     */
+    private static final class Stage {
+        final String name;
+        final LongAdder busyNanos = new LongAdder();
+        final LongAdder blockedNanos = new LongAdder();
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        void busy(long nanos) {
+            busyNanos.add(nanos);
+        }
+
+        void blocked(long nanos) {
+            blockedNanos.add(nanos);
+        }
+    }
+
+    /**
+     * 진행 지표 (수집 중 언제든 조회 가능)
+     */
+    public Metrics metrics() {
+        long now = endNanos != 0 ? endNanos : System.nanoTime();
+        Stage[] stages = {submitStage, chunkStage, embedStage, indexStage};
+        Map<String, Long> busy = new LinkedHashMap<>();
+        Map<String, Long> blocked = new LinkedHashMap<>();
+        for (Stage stage : stages) {
+            busy.put(stage.name, stage.busyNanos.sum() / 1_000_000);
+            blocked.put(stage.name, stage.blockedNanos.sum() / 1_000_000);
+        }
+        return new Metrics(documents.sum(), characters.sum(), chunks.sum(), embedded.sum(), indexed.sum(),
+            started ? (now - startNanos) / 1_000_000 : 0,
+            documentQueue.size(), chunkQueue.size(), batchQueue.size(), busy, blocked);
+    }
+
+    public static class Metrics {
+        public final long documents;      // 청킹을 마친 문서
+        public final long characters;     // 청크 글자 수 합
+        public final long chunks;
+        public final long embedded;
+        public final long indexed;
+        public final long elapsedMillis;
+        public final int documentQueue;   // 현재 큐 깊이
+        public final int chunkQueue;
+        public final int batchQueue;
+        public final Map<String, Long> busyMillis;     // 단계별 처리 시간 (스레드 합계)
+        public final Map<String, Long> blockedMillis;  // 단계별 다음 큐 대기 시간 (backpressure)
+
+        Metrics(long documents, long characters, long chunks, long embedded, long indexed, long elapsedMillis,
+                int documentQueue, int chunkQueue, int batchQueue,
+                Map<String, Long> busyMillis, Map<String, Long> blockedMillis) {
+            this.documents = documents;
+            this.characters = characters;
+            this.chunks = chunks;
+            this.embedded = embedded;
+            this.indexed = indexed;
+            this.elapsedMillis = elapsedMillis;
+            this.documentQueue = documentQueue;
+            this.chunkQueue = chunkQueue;
+            this.batchQueue = batchQueue;
+            this.busyMillis = Collections.unmodifiableMap(busyMillis);
+            this.blockedMillis = Collections.unmodifiableMap(blockedMillis);
+        }
+
+        /**
+         * 초당 저장한 청크 수
+         */
+        public double chunksPerSecond() {
+            return elapsedMillis > 0 ? indexed * 1000.0 / elapsedMillis : 0;
+        }
+
+        /**
+         * 초당 처리한 글자 수 (MB/s 근사)
+         */
+        public double charactersPerSecond() {
+            return elapsedMillis > 0 ? characters * 1000.0 / elapsedMillis : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "문서 %d, 청크 %d → 임베딩 %d → 저장 %d (%.0f청크/s, %d ms), 큐 [%d, %d, %d], 처리 %s, 대기 %s",
+                documents, chunks, embedded, indexed, chunksPerSecond(), elapsedMillis,
+                documentQueue, chunkQueue, batchQueue, busyMillis, blockedMillis);
+        }
+    }
+}
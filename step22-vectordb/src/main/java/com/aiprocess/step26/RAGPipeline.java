@@ -1,56 +1,251 @@
 package com.aiprocess.step26;
 
 import com.aiprocess.step25.*;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
  * RAG 파이프라인: 전체 RAG 워크플로우 구현
+ *
+ * 증분 인덱싱은 백그라운드 병합 스레드를 쓰므로, 다 쓴 파이프라인은 close()로 닫습니다.
  */
-public class RAGPipeline {
+public class RAGPipeline implements AutoCloseable {
+
+    private static final int STREAM_BATCH = 1024;  // 스트리밍 인덱싱 배치 (청크 수)
+    private static final long INCREMENTAL_CACHE_ENTRIES = 100_000;
 
     private final DocumentChunker chunker;
     private final SimpleEmbedding embedding;
     private final SimpleVectorStore vectorStore;
     private final int topK;
+    private VectorRetriever retriever;   // 기본: 저장소 전수 검색
+    private HNSWIndex hnswIndex;
+    private IVFIndex ivfIndex;
+    private IncrementalIndexer incrementalIndexer;
 
     public RAGPipeline(int chunkSize, int embeddingDim, int topK) {
         this.chunker = new DocumentChunker(chunkSize, chunkSize / 5);
         this.embedding = new SimpleEmbedding(embeddingDim);
         this.vectorStore = new SimpleVectorStore(embedding);
         this.topK = topK;
+        this.retriever = vectorStore;
+    }
+
+    /**
+     * saveIndex()로 저장한 세그먼트 파일로 시작 (다시 청킹/임베딩하지 않음)
+     */
+    public RAGPipeline(Path indexFile, int chunkSize, int embeddingDim, int topK) throws IOException {
+        this.chunker = new DocumentChunker(chunkSize, chunkSize / 5);
+        this.embedding = new SimpleEmbedding(embeddingDim);
+        this.vectorStore = SimpleVectorStore.open(indexFile, embedding);
+        this.topK = topK;
+        this.retriever = vectorStore;
+    }
+
+    /**
+     * 인덱싱된 청크를 세그먼트 파일로 저장
+     */
+    public void saveIndex(Path indexFile) throws IOException {
+        vectorStore.save(indexFile);
+    }
+
+    /**
+     * HNSW 근사 검색 사용 (이미 인덱싱된 청크도 그래프에 연결)
+     */
+    public HNSWIndex useHNSWIndex(int m, int efConstruction, int efSearch) {
+        this.hnswIndex = new HNSWIndex(vectorStore, m, efConstruction, efSearch);
+        this.ivfIndex = null;
+        closeIncrementalIndexer();
+        this.retriever = hnswIndex;
+        return hnswIndex;
+    }
+
+    /**
+     * IVF 근사 검색 사용 (이미 인덱싱된 청크로 군집 학습, 문서가 먼저 있어야 함)
+     */
+    public IVFIndex useIVFIndex(int nlist, int nprobe) {
+        this.ivfIndex = new IVFIndex(vectorStore, nlist, nprobe);
+        this.hnswIndex = null;
+        closeIncrementalIndexer();
+        this.retriever = ivfIndex;
+        return ivfIndex;
+    }
+
+    /**
+     * source 단위 증분 인덱싱 사용 (문서를 넣기 전에 선택)
+     *
+     * 같은 source를 다시 인덱싱하면 바뀐 청크만 임베딩하고 사라진 청크는 삭제합니다.
+     * 청크는 삭제를 지원하는 SegmentedVectorStore에 저장되고 검색도 그쪽에서 합니다.
+     * 이미 증분 인덱싱 중이면 같은 인덱서를 돌려줍니다.
+     */
+    public IncrementalIndexer useIncrementalIndexing() {
+        if (incrementalIndexer != null) {
+            return incrementalIndexer;
+        }
+        DocumentChunker contentChunker = new DocumentChunker(chunker.getChunkSize(), 0);
+        this.incrementalIndexer = new IncrementalIndexer(
+            new SegmentedVectorStore(embedding), contentChunker, INCREMENTAL_CACHE_ENTRIES);
+        this.hnswIndex = null;
+        this.ivfIndex = null;
+        this.retriever = incrementalIndexer.getStore();
+        return incrementalIndexer;
+    }
+
+    private void closeIncrementalIndexer() {
+        if (incrementalIndexer != null) {
+            incrementalIndexer.getStore().close();
+            incrementalIndexer = null;
+        }
+    }
+
+    /**
+     * 증분 인덱싱 저장소의 병합 스레드를 멈추고 저장소를 닫음 (이후 인덱싱/검색 불가)
+     */
+    @Override
+    public void close() {
+        try {
+            closeIncrementalIndexer();
+        } finally {
+            vectorStore.close();
+        }
+    }
+
+    /**
+     * source의 청크 삭제 (증분 인덱싱에서만 지원)
+     */
+    public int removeDocument(String source) {
+        if (incrementalIndexer == null) {
+            throw new IllegalStateException("문서 삭제는 증분 인덱싱에서만 지원합니다");
+        }
+        return incrementalIndexer.remove(source);
     }
 
     /**
      * 문서 인덱싱
      */
     public void indexDocument(String document, String source) {
-        List<String> chunks = chunker.chunkByParagraph(document);
+        indexDocuments(Map.of(source, document));
+    }
+
+    /**
+     * 큰 문서를 읽으면서 인덱싱 (청크를 STREAM_BATCH개씩 묶어 임베딩, reader는 호출자가 닫음)
+     */
+    public void indexDocument(Reader reader, String source) {
+        if (incrementalIndexer != null) {
+            throw new IllegalStateException("증분 인덱싱은 문서 전체가 필요합니다: indexDocument(String, String)을 사용하세요");
+        }
+        List<String> ids = new ArrayList<>();
+        List<String> contents = new ArrayList<>();
+        List<Map<String, String>> metadataList = new ArrayList<>();
+        int[] index = {0};
 
-        for (int i = 0; i < chunks.size(); i++) {
+        chunker.streamByParagraph(reader).forEach(chunk -> {
             Map<String, String> metadata = new HashMap<>();
             metadata.put("source", source);
-            metadata.put("chunk_index", String.valueOf(i));
+            metadata.put("chunk_index", String.valueOf(index[0]));
+
+            ids.add(source + "_" + index[0]++);
+            contents.add(chunk);
+            metadataList.add(metadata);
+            if (ids.size() == STREAM_BATCH) {
+                addChunks(ids, contents, metadataList);
+                ids.clear();
+                contents.clear();
+                metadataList.clear();
+            }
+        });
+
+        if (!ids.isEmpty()) {
+            addChunks(ids, contents, metadataList);
+        }
+    }
 
-            vectorStore.addDocument(source + "_" + i, chunks.get(i), metadata);
+    /**
+     * 청크를 저장소에 추가하고 선택된 인덱스에 연결 (인덱스가 있으면 그 쓰기 락 안에서 추가해 검색과 겹쳐도 안전)
+     */
+    private void addChunks(List<String> ids, List<String> contents, List<Map<String, String>> metadata) {
+        if (hnswIndex != null) {
+            hnswIndex.addDocuments(ids, contents, metadata);
+        } else if (ivfIndex != null) {
+            ivfIndex.addDocuments(ids, contents, metadata);
+        } else {
+            vectorStore.addDocuments(ids, contents, metadata);
+        }
+    }
+
+    /**
+     * 파일 대량 인덱싱 (읽기/청킹/임베딩/저장을 단계별 스레드로 겹쳐 실행)
+     *
+     * 저장 스레드가 인덱스 락 없이 저장소에 쓰므로, 끝날 때까지 같은 파이프라인으로 검색하지 않아야 합니다.
+     */
+    public IngestionPipeline.Metrics indexFiles(Collection<Path> files) throws InterruptedException {
+        if (incrementalIndexer != null) {
+            throw new IllegalStateException("증분 인덱싱에서는 indexDocument(String, String)을 사용하세요");
+        }
+        IngestionPipeline.Metrics metrics =
+            new IngestionPipeline(chunker, embedding, vectorStore).ingestFiles(files);
+        if (hnswIndex != null) {
+            hnswIndex.update();
         }
+        if (ivfIndex != null) {
+            ivfIndex.update();
+        }
+        return metrics;
     }
 
     /**
-     * 여러 문서 인덱싱
+     * 여러 문서 인덱싱 (모든 청크를 모아 배치 임베딩)
      */
     public void indexDocuments(Map<String, String> documents) {
+        if (incrementalIndexer != null) {
+            for (Map.Entry<String, String> entry : documents.entrySet()) {
+                incrementalIndexer.index(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+
+        List<String> ids = new ArrayList<>();
+        List<String> contents = new ArrayList<>();
+        List<Map<String, String>> metadataList = new ArrayList<>();
+
         for (Map.Entry<String, String> entry : documents.entrySet()) {
-            indexDocument(entry.getValue(), entry.getKey());
+            String source = entry.getKey();
+            // indexDocument(Reader)/IngestionPipeline의 streamByParagraph와 같은 청크 (같은 문서면 같은 id/내용)
+            List<String> chunks = chunker.chunkByParagraph(entry.getValue());
+
+            for (int i = 0; i < chunks.size(); i++) {
+                Map<String, String> metadata = new HashMap<>();
+                metadata.put("source", source);
+                metadata.put("chunk_index", String.valueOf(i));
+
+                ids.add(source + "_" + i);
+                contents.add(chunks.get(i));
+                metadataList.add(metadata);
+            }
         }
+
+        addChunks(ids, contents, metadataList);
     }
 
     /**
      * RAG 쿼리 실행
      */
     public RAGResponse query(String question) {
+        return query(question, null);
+    }
+
+    /**
+     * 메타데이터 필터를 건 RAG 쿼리 (예: 특정 source 문서만)
+     *
+     * @param filter null이면 필터 없음
+     */
+    public RAGResponse query(String question, MetadataFilter filter) {
         // 1. 검색
-        List<SimpleVectorStore.SearchResult> searchResults =
-            vectorStore.search(question, topK);
+        List<SimpleVectorStore.SearchResult> searchResults = filter == null
+            ? retriever.search(question, topK)
+            : filteredSearch(question, filter);
 
         // 2. 컨텍스트 구성
         StringBuilder context = new StringBuilder();
@@ -73,6 +268,19 @@ public class RAGPipeline {
         return new RAGResponse(question, answer, sources, searchResults);
     }
 
+    private List<SimpleVectorStore.SearchResult> filteredSearch(String question, MetadataFilter filter) {
+        if (incrementalIndexer != null) {
+            return incrementalIndexer.getStore().search(question, topK, filter);
+        }
+        if (hnswIndex != null) {
+            return hnswIndex.search(question, topK, filter);
+        }
+        if (ivfIndex != null) {
+            return ivfIndex.search(question, topK, filter);
+        }
+        return vectorStore.search(question, topK, filter);
+    }
+
     /**
      * RAG 프롬프트 생성
      */
@@ -119,6 +327,9 @@ public class RAGPipeline {
     }
 
     public int getDocumentCount() {
+        if (incrementalIndexer != null) {
+            return incrementalIndexer.getStore().size();  // 증분 모드의 청크는 SegmentedVectorStore에만 있음
+        }
         return vectorStore.size();
     }
 
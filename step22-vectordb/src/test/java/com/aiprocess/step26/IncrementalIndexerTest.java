@@ -0,0 +1,123 @@
+package com.aiprocess.step26;
+
+import com.aiprocess.step25.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalIndexerTest {
+
+    private static final String JAVA_GUIDE = """
+        Java는 객체지향 프로그래밍 언어입니다.
+        1995년 Sun Microsystems에서 개발되었으며, 현재는 Oracle이 관리합니다.
+
+        Java는 엔터프라이즈 애플리케이션, Android 앱, 빅데이터 처리 등에 널리 사용됩니다.
+        """;
+
+    private static final String PYTHON_GUIDE = """
+        Python은 간결하고 읽기 쉬운 프로그래밍 언어입니다.
+        1991년 Guido van Rossum이 개발했습니다.
+
+        Python은 데이터 과학, 머신러닝, 웹 개발, 자동화 스크립트에 많이 사용됩니다.
+        """;
+
+    private static final String AI_INTRO = """
+        인공지능(AI)은 인간의 지능을 모방하는 컴퓨터 시스템입니다.
+
+        최근 GPT 같은 대형 언어 모델(LLM)이 큰 주목을 받고 있습니다.
+        이들은 Transformer 아키텍처를 기반으로 합니다.
+        """;
+
+    /**
+     * source 삭제와 문서 전체 재작성 뒤에도 세그먼트 병합이 끝나고 청크 수가 맞음
+     *
+     * 두 작업 모두 봉인 세그먼트의 청크를 통째로 지우므로 빈 세그먼트가 생깁니다.
+     * 세그먼트를 작게(청크 4개) 잡아 봉인이 일어나게 합니다.
+     */
+    @Test
+    void mergeTerminatesAfterRemoveAndRewrite() {
+        try (SegmentedVectorStore store = new SegmentedVectorStore(new SimpleEmbedding(64), 4, 8, 4)) {
+            IncrementalIndexer indexer = new IncrementalIndexer(store, new DocumentChunker(80, 0), 1_000);
+            indexer.index("java_guide", JAVA_GUIDE);
+            indexer.index("python_guide", PYTHON_GUIDE);
+            indexer.index("ai_intro", AI_INTRO);
+            assertTrue(store.segmentCount() > 0, "봉인 세그먼트가 생기지 않았습니다");
+
+            assertTrue(indexer.remove("python_guide") > 0);
+            indexer.index("java_guide", """
+                Kotlin은 JVM 위에서 동작하는 현대적인 언어입니다.
+                널 안전성과 간결한 문법을 제공하며 Java와 함께 쓸 수 있습니다.
+                """);
+
+            int limit = store.segmentCount() + 1;  // 병합할 때마다 봉인 세그먼트가 하나 이상 줄어듦
+            int merges = 0;
+            while (store.maybeMerge()) {
+                assertTrue(++merges <= limit, "세그먼트 병합이 끝나지 않습니다");
+            }
+
+            int expected = 0;
+            for (String source : indexer.sources()) {
+                expected += indexer.chunkIds(source).size();
+            }
+            assertEquals(expected, store.size());
+            assertEquals(0, store.deletedCount());
+            assertEquals(Set.of("java_guide", "ai_intro"), indexer.sources());
+        }
+    }
+
+    /**
+     * 내용이 그대로인 재인덱싱은 임베딩도 삭제도 하지 않음
+     */
+    @Test
+    void reindexingUnchangedDocumentKeepsEveryChunk() {
+        try (SegmentedVectorStore store = new SegmentedVectorStore(new SimpleEmbedding(64), 4, 8, 4)) {
+            IncrementalIndexer indexer = new IncrementalIndexer(store, new DocumentChunker(80, 0), 1_000);
+            IncrementalIndexer.Update first = indexer.index("ai_intro", AI_INTRO);
+            IncrementalIndexer.Update second = indexer.index("ai_intro", AI_INTRO);
+
+            assertEquals(first.chunks, second.unchanged);
+            assertEquals(0, second.embedded);
+            assertEquals(0, second.removed);
+            assertEquals(first.chunks, store.size());
+        }
+    }
+
+    /**
+     * 같은 내용의 청크가 여러 번 나와도 나온 횟수만큼 저장되고, 임베딩은 내용마다 한 번만 함
+     */
+    @Test
+    void repeatedChunksAreKeptOncePerOccurrence() {
+        StringBuilder block = new StringBuilder();
+        for (int i = 0; i < 120; i++) {
+            block.append("word").append(i).append(i % 7 == 6 ? ".\n\n" : " ");
+        }
+        String document = "intro text here.\n\n" + block + "middle part only once.\n\n" + block + "the end.";
+
+        DocumentChunker chunker = new DocumentChunker(80, 0);
+        List<String> chunks = new ArrayList<>();
+        for (TextSpan span : chunker.spansByContent(document)) {
+            chunks.add(span.toString());
+        }
+        int distinct = new HashSet<>(chunks).size();
+        assertTrue(distinct < chunks.size(), "반복되는 청크가 없습니다");
+
+        try (SegmentedVectorStore store = new SegmentedVectorStore(new SimpleEmbedding(64), 4, 8, 4)) {
+            IncrementalIndexer indexer = new IncrementalIndexer(store, chunker, 1_000);
+            IncrementalIndexer.Update update = indexer.index("manual", document);
+
+            assertEquals(chunks.size(), update.chunks);
+            assertEquals(distinct, update.embedded);
+            assertEquals(chunks.size(), store.size());
+            assertEquals(chunks.size(), indexer.chunkIds("manual").size());
+
+            // 두 번째 반복을 지우면 그 청크만 삭제되고 첫 번째 반복은 그대로
+            String shorter = "intro text here.\n\n" + block + "middle part only once.\n\nthe end.";
+            IncrementalIndexer.Update second = indexer.index("manual", shorter);
+            assertTrue(second.removed > 0);
+            assertTrue(second.unchanged > 0);
+            assertEquals(second.chunks, store.size());
+        }
+    }
+}
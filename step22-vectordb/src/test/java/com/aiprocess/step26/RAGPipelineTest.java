@@ -0,0 +1,76 @@
+package com.aiprocess.step26;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RAGPipelineTest {
+
+    /**
+     * 증분 인덱싱을 다시 골라도 저장소(병합 스레드)를 새로 만들지 않고, close()가 저장소를 닫음
+     */
+    @Test
+    void incrementalIndexerIsReusedAndClosedWithPipeline() {
+        IncrementalIndexer indexer;
+        try (RAGPipeline rag = new RAGPipeline(200, 64, 2)) {
+            indexer = rag.useIncrementalIndexing();
+            assertSame(indexer, rag.useIncrementalIndexing());
+
+            rag.indexDocument("Java는 객체지향 프로그래밍 언어입니다.", "java_guide");
+            assertEquals(1, rag.getDocumentCount());
+        }
+        assertThrows(IllegalStateException.class, () -> indexer.index("ai_intro", "인공지능 소개"));
+    }
+
+    /**
+     * 다른 검색 방식으로 바꾸면 증분 인덱싱 저장소를 닫음
+     */
+    @Test
+    void switchingIndexClosesIncrementalStore() {
+        try (RAGPipeline rag = new RAGPipeline(200, 64, 2)) {
+            IncrementalIndexer indexer = rag.useIncrementalIndexing();
+            rag.useHNSWIndex(8, 32, 32);
+            assertThrows(IllegalStateException.class, () -> indexer.index("ai_intro", "인공지능 소개"));
+        }
+    }
+
+    /**
+     * HNSW 인덱스를 쓰는 동안 인덱싱과 검색이 겹쳐도 예외 없이 모든 청크가 그래프에 연결됨
+     * (저장소 추가가 인덱스 쓰기 락 밖에서 일어나면 검색이 늘어나는 배열을 읽음)
+     */
+    @Test
+    void searchWhileIndexingWithHnsw() throws Exception {
+        try (RAGPipeline rag = new RAGPipeline(200, 64, 3)) {
+            rag.indexDocument("Java는 객체지향 프로그래밍 언어입니다.", "seed");
+            HNSWIndex index = rag.useHNSWIndex(8, 32, 32);
+
+            ExecutorService searcher = Executors.newSingleThreadExecutor();
+            AtomicBoolean indexing = new AtomicBoolean(true);
+            Future<Integer> searches = searcher.submit(() -> {
+                int count = 0;
+                while (indexing.get()) {
+                    rag.query("프로그래밍 언어");
+                    count++;
+                }
+                return count;
+            });
+
+            for (int batch = 0; batch < 50; batch++) {
+                Map<String, String> documents = new LinkedHashMap<>();
+                for (int i = 0; i < 20; i++) {
+                    documents.put("doc_" + batch + "_" + i, "문서 " + batch + "-" + i + "는 벡터 검색과 언어 모델을 다룹니다.");
+                }
+                rag.indexDocuments(documents);
+            }
+            indexing.set(false);
+            assertTrue(searches.get(30, TimeUnit.SECONDS) > 0);
+            searcher.shutdown();
+
+            assertEquals(rag.getDocumentCount(), index.size());
+        }
+    }
+}